@@ -0,0 +1,32 @@
+package com.vtdparser.benchmark;
+
+import com.vtdparser.testdata.SchedulerXmlGenerator;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+// Benchmark fixtures come from the test tree's generator with a fixed seed. Generated files are kept in
+// vtdparser.bench.dir (default: java.io.tmpdir/vtdparser-bench) and reused across runs and forks.
+final class BenchmarkDocuments {
+    private static final long SEED = 42L;
+
+    private BenchmarkDocuments() {
+    }
+
+    static Path get(int sizeMb, int depth, int fanOut) throws IOException {
+        Path directory = Paths.get(System.getProperty("vtdparser.bench.dir",
+                Paths.get(System.getProperty("java.io.tmpdir"), "vtdparser-bench").toString()));
+        Path file = directory.resolve("scheduler-" + sizeMb + "mb-d" + depth + "-w" + fanOut + "-s" + SEED + ".xml");
+        if (!Files.isRegularFile(file)) {
+            new SchedulerXmlGenerator()
+                    .setTargetMegabytes(sizeMb)
+                    .setDepth(depth)
+                    .setWidth(fanOut)
+                    .setSeed(SEED)
+                    .writeTo(file);
+        }
+        return file;
+    }
+}
@@ -0,0 +1,58 @@
+package com.vtdparser.benchmark;
+
+import com.vtdparser.VTDXMLParser;
+import com.vtdparser.builder.VTDParserBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.TimeUnit;
+
+// Time and allocation of a full loadDocument, including any index build the configuration asks for
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class LoadDocumentBenchmark {
+    @Param({"10", "100", "1000"})
+    public int sizeMb;
+
+    @Param({"4"})
+    public int depth;
+
+    @Param({"10"})
+    public int fanOut;
+
+    @Param({"false"})
+    public boolean positionIndex;
+
+    private String xmlFilePath;
+    private VTDXMLParser parser;
+
+    @Setup(Level.Trial)
+    public void generate() throws Exception {
+        xmlFilePath = BenchmarkDocuments.get(sizeMb, depth, fanOut).toString();
+    }
+
+    @Setup(Level.Invocation)
+    public void createParser() {
+        parser = new VTDParserBuilder().setPositionIndexEnabled(positionIndex).build();
+    }
+
+    @TearDown(Level.Invocation)
+    public void closeParser() {
+        parser.close();
+    }
+
+    @Benchmark
+    public VTDXMLParser loadDocument() throws Exception {
+        parser.loadDocument(xmlFilePath);
+        return parser;
+    }
+}
@@ -0,0 +1,133 @@
+package com.vtdparser.benchmark;
+
+import com.vtdparser.VTDXMLParser;
+import com.vtdparser.builder.VTDParserBuilder;
+import com.vtdparser.model.Element;
+import com.vtdparser.query.ElementQuery;
+import com.vtdparser.query.QueryBatch;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// One benchmark per public query path, all against the same loaded document. Results are returned
+// so JMH consumes them; element attributes are read where the path is lazy, so decoding is included.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class QueryBenchmark {
+    @Param({"10", "100", "1000"})
+    public int sizeMb;
+
+    @Param({"4"})
+    public int depth;
+
+    @Param({"10"})
+    public int fanOut;
+
+    @Param({"false"})
+    public boolean positionIndex;
+
+    private VTDXMLParser parser;
+    private Element folder;
+    private Element jobParent;
+    private String lastJobName;
+    private String lastJobDescriptionXPath;
+    private QueryBatch dashboardBatch;
+
+    @Setup(Level.Trial)
+    public void load() throws Exception {
+        String xmlFilePath = BenchmarkDocuments.get(sizeMb, depth, fanOut).toString();
+        parser = new VTDParserBuilder().setPositionIndexEnabled(positionIndex).build();
+        parser.loadDocument(xmlFilePath);
+
+        folder = parser.searchByXPath("/DEFTABLE/SMART_FOLDER[1]", 1).get(0);
+        jobParent = parser.getParent(parser.searchByXPath("//JOB", 1).get(0));
+        // Target the last job so lookups cannot stop early near the start of the document
+        lastJobName = "JOB_" + parser.getElementCountByXPath("//JOB");
+        lastJobDescriptionXPath = "//JOB[@JOBNAME='" + lastJobName + "']/DESCRIPTION";
+
+        // A dashboard refresh: one count per task type and application, critical or not
+        dashboardBatch = new QueryBatch();
+        for (String taskType : new String[]{"Command", "Job", "Dummy"}) {
+            for (String critical : new String[]{"0", "1"}) {
+                dashboardBatch.add(ElementQuery.forTag("JOB").attributeEquals("TASKTYPE", taskType)
+                        .attributeEquals("CRITICAL", critical).build());
+            }
+        }
+        for (int application = 0; application < 3; application++) {
+            dashboardBatch.add(ElementQuery.forTag("JOB").attributeEquals("APPLICATION", "APP_" + application).build());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void close() {
+        parser.close();
+    }
+
+    @Benchmark
+    public List<Element> searchByAttribute() {
+        return touch(parser.searchByAttribute("JOB", "CRITICAL", "1"));
+    }
+
+    @Benchmark
+    public List<Element> searchByAttributeSingleMatch() {
+        return touch(parser.searchByAttribute("JOB", "JOBNAME", lastJobName));
+    }
+
+    @Benchmark
+    public List<Element> searchByXPath() {
+        return touch(parser.searchByXPath("//JOB[@TASKTYPE='Dummy']"));
+    }
+
+    @Benchmark
+    public List<Element> getChildren() {
+        return touch(parser.getChildren(folder));
+    }
+
+    @Benchmark
+    public List<Element> searchChildrenByAttribute() {
+        return touch(parser.searchChildrenByAttribute(jobParent, "TASKTYPE", "Command"));
+    }
+
+    @Benchmark
+    public int getElementCountByXPath() {
+        return parser.getElementCountByXPath("//JOB");
+    }
+
+    @Benchmark
+    public String getValueByXPath() {
+        return parser.getValueByXPath(lastJobDescriptionXPath);
+    }
+
+    @Benchmark
+    public int[] evaluateBatch() {
+        return parser.evaluate(dashboardBatch);
+    }
+
+    @Benchmark
+    public int[] evaluateQueriesOneByOne() {
+        List<ElementQuery> queries = dashboardBatch.getQueries();
+        int[] counts = new int[queries.size()];
+        for (int q = 0; q < counts.length; q++) {
+            counts[q] = parser.countMatches(queries.get(q));
+        }
+        return counts;
+    }
+
+    private static List<Element> touch(List<Element> elements) {
+        for (Element element : elements) {
+            element.getAttributes();
+        }
+        return elements;
+    }
+}
@@ -0,0 +1,275 @@
+package com.vtdparser;
+
+import com.vtdparser.exception.VTDParserException;
+import com.vtdparser.model.Element;
+import com.ximpleware.AutoPilot;
+import com.ximpleware.VTDNav;
+import com.ximpleware.XMLModifier;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+// Batch of edits against a loaded document, recorded in VTD-XML's XMLModifier. Nothing is
+// re-serialized: output splices the new strings between untouched byte ranges of the original buffer,
+// so any number of edits costs a single pass. XMLModifier allows one change per token, so e.g. setting
+// the same attribute twice in one editor fails. Editors are not thread-safe.
+public final class DocumentEditor {
+  private final VTDDocument document;
+  private final VTDNav nav;
+  private final XMLModifier modifier;
+  private int editCount;
+
+  DocumentEditor(VTDDocument document) {
+    this.document = document;
+    this.nav = document.cloneNav();
+    try {
+      this.modifier = new XMLModifier(nav);
+    } catch (Exception e) {
+      throw new VTDParserException("Failed to bind XMLModifier", e);
+    }
+  }
+
+  VTDDocument getDocument() {
+    return document;
+  }
+
+  public int getEditCount() {
+    return editCount;
+  }
+
+  // Adds the attribute when the element does not have it yet; the value is escaped
+  public DocumentEditor setAttribute(Element element, String attributeName, String value) {
+    setAttribute(element.getXpathIndex(), attributeName, value);
+    return this;
+  }
+
+  public DocumentEditor removeAttribute(Element element, String attributeName) {
+    removeAttribute(element.getXpathIndex(), attributeName);
+    return this;
+  }
+
+  // Replaces the element's first text node, or gives a text-less element one; the text is escaped
+  public DocumentEditor replaceText(Element element, String text) {
+    replaceText(element.getXpathIndex(), text);
+    return this;
+  }
+
+  // The xml argument is spliced in verbatim and must be well-formed
+  public DocumentEditor insertBefore(Element element, String xml) {
+    try {
+      nav.recoverNode(element.getXpathIndex());
+      modifier.insertBeforeElement(xml);
+    } catch (Exception e) {
+      throw editFailure("insert before", element.getXpathIndex(), e);
+    }
+    editCount++;
+    return this;
+  }
+
+  public DocumentEditor insertAfter(Element element, String xml) {
+    try {
+      nav.recoverNode(element.getXpathIndex());
+      modifier.insertAfterElement(xml);
+    } catch (Exception e) {
+      throw editFailure("insert after", element.getXpathIndex(), e);
+    }
+    editCount++;
+    return this;
+  }
+
+  // Inserts as the last child
+  public DocumentEditor appendChild(Element element, String xml) {
+    try {
+      nav.recoverNode(element.getXpathIndex());
+      modifier.insertBeforeTail(xml);
+    } catch (Exception e) {
+      throw editFailure("append child to", element.getXpathIndex(), e);
+    }
+    editCount++;
+    return this;
+  }
+
+  public DocumentEditor removeElement(Element element) {
+    removeElement(element.getXpathIndex());
+    return this;
+  }
+
+  // XPath forms edit every match and return how many elements were changed
+  public int setAttribute(String xpathExpression, String attributeName, String value) {
+    int[] matches = evaluate(xpathExpression);
+    for (int elementIndex : matches) {
+      setAttribute(elementIndex, attributeName, value);
+    }
+    return matches.length;
+  }
+
+  public int removeAttribute(String xpathExpression, String attributeName) {
+    int removed = 0;
+    for (int elementIndex : evaluate(xpathExpression)) {
+      if (removeAttribute(elementIndex, attributeName)) {
+        removed++;
+      }
+    }
+    return removed;
+  }
+
+  public int replaceText(String xpathExpression, String text) {
+    int[] matches = evaluate(xpathExpression);
+    for (int elementIndex : matches) {
+      replaceText(elementIndex, text);
+    }
+    return matches.length;
+  }
+
+  public int removeElements(String xpathExpression) {
+    int[] matches = evaluate(xpathExpression);
+    for (int elementIndex : matches) {
+      removeElement(elementIndex);
+    }
+    return matches.length;
+  }
+
+  // Writes the edited document; unchanged regions are copied from the original buffer as-is
+  public void output(OutputStream out) {
+    try {
+      modifier.output(out);
+    } catch (Exception e) {
+      throw new VTDParserException("Failed to write edited document", e);
+    }
+  }
+
+  public byte[] toByteArray() {
+    ByteArrayOutputStream out;
+    try {
+      out = new ByteArrayOutputStream(modifier.getUpdatedDocumentSize());
+    } catch (Exception e) {
+      throw new VTDParserException("Failed to size edited document", e);
+    }
+    output(out);
+    return out.toByteArray();
+  }
+
+  // Tokenizes the edited bytes in memory, without going through a file
+  VTDNav outputAndReparse() {
+    try {
+      return modifier.outputAndReparse();
+    } catch (Exception e) {
+      throw new VTDParserException("Failed to re-parse edited document", e);
+    }
+  }
+
+  private void setAttribute(int elementIndex, String attributeName, String value) {
+    try {
+      nav.recoverNode(elementIndex);
+      int valueIndex = nav.getAttrVal(attributeName);
+      if (valueIndex != -1) {
+        modifier.updateToken(valueIndex, escapeAttribute(value));
+      } else {
+        modifier.insertAttribute(" " + attributeName + "=\"" + escapeAttribute(value) + "\"");
+      }
+    } catch (Exception e) {
+      throw editFailure("set attribute " + attributeName + " on", elementIndex, e);
+    }
+    editCount++;
+  }
+
+  private boolean removeAttribute(int elementIndex, String attributeName) {
+    try {
+      nav.recoverNode(elementIndex);
+      int valueIndex = nav.getAttrVal(attributeName);
+      if (valueIndex == -1) {
+        return false;
+      }
+      modifier.removeAttribute(valueIndex - 1); // The name token precedes its value
+    } catch (Exception e) {
+      throw editFailure("remove attribute " + attributeName + " from", elementIndex, e);
+    }
+    editCount++;
+    return true;
+  }
+
+  private void replaceText(int elementIndex, String text) {
+    try {
+      nav.recoverNode(elementIndex);
+      int textIndex = nav.getText();
+      if (textIndex != -1) {
+        modifier.updateToken(textIndex, escapeText(text));
+      } else {
+        modifier.insertAfterHead(escapeText(text));
+      }
+    } catch (Exception e) {
+      throw editFailure("replace text of", elementIndex, e);
+    }
+    editCount++;
+  }
+
+  private void removeElement(int elementIndex) {
+    try {
+      nav.recoverNode(elementIndex);
+      modifier.remove();
+    } catch (Exception e) {
+      throw editFailure("remove", elementIndex, e);
+    }
+    editCount++;
+  }
+
+  // Matches are collected before any edit so that moving the shared cursor cannot disturb the walk
+  private int[] evaluate(String xpathExpression) {
+    List<Integer> matches = new ArrayList<>();
+    VTDDocument.QueryCursor cursor = document.acquireCursor();
+    try {
+      AutoPilot autoPilot = cursor.xpathCache.getAutoPilot(xpathExpression);
+      int elementIndex;
+      while ((elementIndex = autoPilot.evalXPath()) != -1) {
+        matches.add(elementIndex);
+      }
+    } catch (Exception e) {
+      throw new VTDParserException("Failed to evaluate XPath for edit: " + xpathExpression, e);
+    } finally {
+      document.releaseCursor(cursor);
+    }
+    return matches.stream().mapToInt(Integer::intValue).toArray();
+  }
+
+  private static VTDParserException editFailure(String action, int elementIndex, Exception cause) {
+    return new VTDParserException("Failed to " + action + " element at token " + elementIndex, cause);
+  }
+
+  static String escapeAttribute(String value) {
+    return escape(value, true);
+  }
+
+  static String escapeText(String text) {
+    return escape(text, false);
+  }
+
+  private static String escape(String value, boolean attribute) {
+    StringBuilder escaped = null;
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      String replacement;
+      if (c == '&') {
+        replacement = "&amp;";
+      } else if (c == '<') {
+        replacement = "&lt;";
+      } else if (c == '>') {
+        replacement = "&gt;";
+      } else if (c == '"' && attribute) {
+        replacement = "&quot;";
+      } else {
+        replacement = null;
+      }
+      if (replacement != null) {
+        if (escaped == null) {
+          escaped = new StringBuilder(value.length() + 16).append(value, 0, i);
+        }
+        escaped.append(replacement);
+      } else if (escaped != null) {
+        escaped.append(c);
+      }
+    }
+    return escaped != null ? escaped.toString() : value;
+  }
+}
@@ -0,0 +1,319 @@
+package com.vtdparser;
+
+import com.vtdparser.model.Element;
+import com.vtdparser.model.Projection;
+import com.vtdparser.query.AttributePredicate;
+import com.vtdparser.query.ElementQuery;
+import com.vtdparser.util.PerformanceMetrics;
+import com.ximpleware.extended.AutoPilotHuge;
+import com.ximpleware.extended.NavExceptionHuge;
+import com.ximpleware.extended.VTDGenHuge;
+import com.ximpleware.extended.VTDNavHuge;
+import com.ximpleware.extended.XPathEvalExceptionHuge;
+import com.ximpleware.extended.XPathParseExceptionHuge;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.function.Predicate;
+
+// Memory-mapped counterpart of the VTDNav query paths. The document bytes stay in mapped files, so
+// only the VTD records live on the heap. VTDNavHuge cannot recover a cursor from a token index, so
+// elements are materialized while the cursor is on them and re-located through their xpath. There is
+// no cloneNav for VTDNavHuge either, so queries on a mapped document are serialized.
+final class HugeDocument {
+  private final VTDNavHuge vtdNav;
+  private final Path path;
+  private final PerformanceMetrics metrics;
+
+  private HugeDocument(VTDNavHuge vtdNav, Path path, PerformanceMetrics metrics) {
+    this.vtdNav = vtdNav;
+    this.path = path;
+    this.metrics = metrics;
+  }
+
+  static HugeDocument load(String xmlFilePath, boolean namespaceAware, PerformanceMetrics metrics) throws Exception {
+    VTDGenHuge vtdGen = new VTDGenHuge();
+    if (!vtdGen.parseFile(xmlFilePath, namespaceAware, VTDGenHuge.MEM_MAPPED)) {
+      throw new Exception("Failed to parse XML file: " + xmlFilePath);
+    }
+    return new HugeDocument(vtdGen.getNav(), Paths.get(xmlFilePath), metrics);
+  }
+
+  synchronized List<Element> searchByXPath(String xpathExpression) {
+    List<Element> results = new ArrayList<>();
+    forEachByXPath(xpathExpression, Integer.MAX_VALUE, results::add);
+    return results;
+  }
+
+  // The visitor runs on the single shared cursor, so it must not issue further queries on this document
+  synchronized int forEachByXPath(String xpathExpression, int limit, Predicate<Element> visitor) {
+    int visited = 0;
+    try {
+      AutoPilotHuge autoPilot = compile(xpathExpression);
+      int xpathIndex;
+      while (visited < limit && (xpathIndex = autoPilot.evalXPath()) != -1) {
+        visited++;
+        if (!visitor.test(buildElement(xpathIndex))) {
+          break;
+        }
+      }
+      QueryTrace.addNodesVisited(visited);
+    } catch (XPathParseExceptionHuge | XPathEvalExceptionHuge | NavExceptionHuge e) {
+      // Exceptions from the visitor propagate
+      System.err.println("Error in forEachByXPath: " + e.getMessage());
+    }
+    return visited;
+  }
+
+  // VTDNavHuge does not share VTDNav's token comparison API, so typed queries are translated into XPath
+  // here, with every name and value quoted as an XPath literal rather than spliced in
+  synchronized int forEachMatch(ElementQuery query, Predicate<Element> visitor) {
+    StringBuilder xpath = new StringBuilder();
+    if (query.getScope() != null) {
+      String scopeXpath = query.getScope().getXpath();
+      if (scopeXpath == null) {
+        return 0;
+      }
+      xpath.append(scopeXpath);
+    }
+    xpath.append("//").append(query.getTagName() != null ? query.getTagName() : "*");
+    for (AttributePredicate predicate : query.getPredicates()) {
+      String attribute = "@*[name()=" + literal(predicate.getAttributeName()) + "]";
+      xpath.append('[');
+      switch (predicate.getOperator()) {
+        case EQUALS:
+          xpath.append(attribute).append('=').append(literal(predicate.getValues().get(0)));
+          break;
+        case PREFIX:
+          xpath.append("starts-with(").append(attribute).append(',').append(literal(predicate.getValues().get(0))).append(')');
+          break;
+        default:
+          if (predicate.getValues().isEmpty()) {
+            return 0;
+          }
+          for (int i = 0; i < predicate.getValues().size(); i++) {
+            xpath.append(i > 0 ? " or " : "").append(attribute).append('=').append(literal(predicate.getValues().get(i)));
+          }
+      }
+      xpath.append(']');
+    }
+    return forEachByXPath(xpath.toString(), query.getLimit(), visitor);
+  }
+
+  // XPath 1.0 has no escapes, so a value holding both quote kinds is assembled with concat()
+  private static String literal(String value) {
+    if (value.indexOf('\'') == -1) {
+      return "'" + value + "'";
+    }
+    if (value.indexOf('"') == -1) {
+      return "\"" + value + "\"";
+    }
+    return "concat('" + value.replace("'", "', \"'\", '") + "')";
+  }
+
+  synchronized Projection select(String xpathExpression, String[] columns) {
+    ProjectionBuilder builder = new ProjectionBuilder(columns);
+    try {
+      AutoPilotHuge autoPilot = compile(xpathExpression);
+      int xpathIndex;
+      while ((xpathIndex = autoPilot.evalXPath()) != -1) {
+        builder.addRow(xpathIndex);
+        for (int column = 0; column < builder.getColumnCount(); column++) {
+          int valueIndex = builder.isTextColumn(column) ? vtdNav.getText() : vtdNav.getAttrVal(builder.getColumn(column));
+          if (valueIndex != -1) {
+            builder.set(column, vtdNav.toString(valueIndex));
+          }
+        }
+      }
+      QueryTrace.addNodesVisited(builder.size());
+    } catch (Exception e) {
+      System.err.println("Error in select: " + e.getMessage());
+    }
+    return builder.build(null);
+  }
+
+  synchronized List<Element> searchByAttribute(String tagName, String attributeName, String attributeValue) {
+    List<Element> results = new ArrayList<>();
+    try {
+      AutoPilotHuge autoPilot = compile("//" + tagName + "[@" + attributeName + "]");
+      int xpathIndex;
+      int visited = 0;
+      while ((xpathIndex = autoPilot.evalXPath()) != -1) {
+        visited++;
+        int valueIndex = vtdNav.getAttrVal(attributeName);
+        if (valueIndex != -1 && attributeValue.equals(vtdNav.toString(valueIndex))) {
+          results.add(buildElement(xpathIndex));
+        }
+      }
+      QueryTrace.addNodesVisited(visited);
+    } catch (Exception e) {
+      System.err.println("Error in searchByAttribute: " + e.getMessage());
+    }
+    return results;
+  }
+
+  synchronized int getElementCountByXPath(String xpath) {
+    int count = 0;
+    try {
+      AutoPilotHuge autoPilot = compile(xpath);
+      while (autoPilot.evalXPath() != -1) {
+        count++;
+      }
+      QueryTrace.addNodesVisited(count);
+    } catch (Exception e) {
+      System.err.println("Error in getElementCountByXPath: " + e.getMessage());
+      return 0;
+    }
+    return count;
+  }
+
+  synchronized String getValueByXPath(String xpath) {
+    try {
+      AutoPilotHuge autoPilot = compile(xpath);
+      if (autoPilot.evalXPath() != -1) {
+        int textIndex = vtdNav.getText();
+        if (textIndex != -1) {
+          return vtdNav.toString(textIndex);
+        }
+      }
+    } catch (Exception e) {
+      System.err.println("Error in getValueByXPath: " + e.getMessage());
+    }
+    return null;
+  }
+
+  synchronized List<Element> getChildren(Element parentElement, String tagName, String attributeName, String attributeValue) {
+    List<Element> results = new ArrayList<>();
+    try {
+      if (!moveToElement(parentElement)) {
+        return results;
+      }
+      Map<String, Integer> positions = new HashMap<>();
+      String parentXpath = parentElement.getXpath();
+      int visited = 0;
+      if (vtdNav.toElement(VTDNavHuge.FIRST_CHILD)) {
+        do {
+          visited++;
+          int childIndex = vtdNav.getCurrentIndex();
+          String childName = vtdNav.toString(childIndex);
+          int position = positions.merge(childName, 1, Integer::sum);
+          if (tagName != null && !tagName.equals(childName)) {
+            continue;
+          }
+          if (attributeName != null) {
+            int valueIndex = vtdNav.getAttrVal(attributeName);
+            if (valueIndex == -1 || !attributeValue.equals(vtdNav.toString(valueIndex))) {
+              continue;
+            }
+          }
+          results.add(buildElement(childIndex, childName, position, parentXpath + "/" + childName + "[" + position + "]"));
+        } while (vtdNav.toElement(VTDNavHuge.NEXT_SIBLING));
+      }
+      QueryTrace.addNodesVisited(visited);
+    } catch (Exception e) {
+      System.err.println("Error in getChildren: " + e.getMessage());
+    }
+    return results;
+  }
+
+  // Only the VTD records are on the heap; the document bytes stay in the mapping
+  long getMemoryFootprint() {
+    return 8L * vtdNav.getTokenCount();
+  }
+
+  Path getPath() {
+    return path;
+  }
+
+  // {offset, length} in bytes of the element's subtree within the mapped file, or null when the element
+  // cannot be re-located
+  synchronized long[] getFragmentRange(Element element) {
+    try {
+      if (moveToElement(element)) {
+        return vtdNav.getElementFragment();
+      }
+    } catch (Exception e) {
+      System.err.println("Error in getFragmentRange: " + e.getMessage());
+    }
+    return null;
+  }
+
+  synchronized Element navigateFrom(Element element, int direction) {
+    try {
+      if (moveToElement(element) && vtdNav.toElement(direction)) {
+        return buildElement(vtdNav.getCurrentIndex());
+      }
+    } catch (Exception e) {
+      System.err.println("Error in navigateFrom: " + e.getMessage());
+    }
+    return null;
+  }
+
+  private AutoPilotHuge compile(String xpathExpression) throws XPathParseExceptionHuge {
+    long start = metrics.startTimer();
+    AutoPilotHuge autoPilot = new AutoPilotHuge(vtdNav);
+    autoPilot.selectXPath(xpathExpression);
+    metrics.recordCompile(start);
+    return autoPilot;
+  }
+
+  private boolean moveToElement(Element element) throws Exception {
+    String xpath = element.getXpath();
+    if (xpath == null) {
+      return false;
+    }
+    AutoPilotHuge autoPilot = compile(xpath);
+    return autoPilot.evalXPath() == element.getXpathIndex();
+  }
+
+  private Element buildElement(int elementIndex) throws NavExceptionHuge {
+    vtdNav.push();
+    int position = getCurrentElementPosition();
+    StringBuilder xpath = new StringBuilder();
+    do {
+      String elementName = vtdNav.toString(vtdNav.getCurrentIndex());
+      // The walk ends at the document node, which has no name and no step of its own
+      if (!elementName.isEmpty()) {
+        xpath.insert(0, "/" + elementName + "[" + getCurrentElementPosition() + "]");
+      }
+    } while (vtdNav.toElement(VTDNavHuge.PARENT));
+    vtdNav.pop();
+    return buildElement(elementIndex, vtdNav.toString(elementIndex), position, xpath.toString());
+  }
+
+  private Element buildElement(int elementIndex, String tagName, int position, String xpath) throws NavExceptionHuge {
+    String textContent = "";
+    int textIndex = vtdNav.getText();
+    if (textIndex != -1) {
+      textContent = vtdNav.toString(textIndex);
+    }
+
+    // Attribute name/value tokens directly follow the starting tag token
+    Map<String, String> attributes = new HashMap<>();
+    int tokenCount = vtdNav.getTokenCount();
+    for (int i = elementIndex + 1; i + 1 < tokenCount; i += 2) {
+      int tokenType = vtdNav.getTokenType(i);
+      if (tokenType != VTDNavHuge.TOKEN_ATTR_NAME && tokenType != VTDNavHuge.TOKEN_ATTR_NS) {
+        break;
+      }
+      attributes.put(vtdNav.toString(i), vtdNav.toString(i + 1));
+    }
+    return new Element(tagName, textContent, attributes, elementIndex, position, xpath);
+  }
+
+  private int getCurrentElementPosition() throws NavExceptionHuge {
+    int currentIndex = vtdNav.getCurrentIndex();
+    String elementName = vtdNav.toString(currentIndex);
+    int position = 1; // XPath is 1-based
+
+    vtdNav.push();
+    while (vtdNav.toElement(VTDNavHuge.PREV_SIBLING)) {
+      if (vtdNav.matchElement(elementName)) {
+        position++;
+      }
+    }
+    vtdNav.pop();
+    return position;
+  }
+}
@@ -0,0 +1,231 @@
+package com.vtdparser;
+
+import com.vtdparser.exception.VTDParserException;
+import com.ximpleware.AutoPilot;
+import com.ximpleware.NavException;
+import com.ximpleware.VTDNav;
+import com.ximpleware.XPathEvalException;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+// Evaluates a "//name..." expression across the root's child elements on the common fork-join pool.
+// Each partition is a run of consecutive top-level elements; it evaluates the expression rewritten as
+// "descendant-or-self::name..." from each of its elements on its own cursor. Partitions are split in
+// halves by token range and joined left before right, so matches come back in document order.
+final class ParallelXPath {
+  // Partitions are not split below this many tokens; smaller ones cost more to schedule than to scan
+  private static final int MIN_PARTITION_TOKENS = 4096;
+
+  private final VTDDocument document;
+  private final String expression;
+  private final int[] topLevelElements;
+  private final int tokenCount;
+  private final int grain;
+  private final String attributeName;
+  private final String attributeValue;
+
+  private ParallelXPath(VTDDocument document, String expression, int[] topLevelElements, String attributeName,
+                        String attributeValue) {
+    this.document = document;
+    this.expression = expression;
+    this.topLevelElements = topLevelElements;
+    this.tokenCount = document.getTokenCount();
+    // A few partitions per worker, so one dense subtree does not leave the others idle
+    int partitions = ForkJoinPool.getCommonPoolParallelism() * 4;
+    this.grain = Math.max(tokenCount / partitions, MIN_PARTITION_TOKENS);
+    this.attributeName = attributeName;
+    this.attributeValue = attributeValue;
+  }
+
+  // A plan for the expression, or null when it has to run sequentially: the document is below the
+  // threshold (a negative threshold disables parallel queries), the root has fewer than two children,
+  // or the expression cannot be split at the top-level elements
+  static ParallelXPath plan(VTDDocument document, String xpath, int tokenThreshold) throws NavException {
+    return plan(document, xpath, tokenThreshold, null, null);
+  }
+
+  // Matches of the expression that also carry the attribute with exactly this value
+  static ParallelXPath plan(VTDDocument document, String xpath, int tokenThreshold, String attributeName,
+                            String attributeValue) throws NavException {
+    if (tokenThreshold < 0 || document.getTokenCount() < tokenThreshold) {
+      return null;
+    }
+    int[] topLevelElements = document.getTopLevelElements();
+    if (topLevelElements.length < 2) {
+      return null;
+    }
+    String expression = partitionedForm(xpath, document.getRootName());
+    if (expression == null) {
+      return null;
+    }
+    return new ParallelXPath(document, expression, topLevelElements, attributeName, attributeValue);
+  }
+
+  // Token indexes of the matches, in document order
+  int[] matches() {
+    return ForkJoinPool.commonPool().invoke(new Partition(0, topLevelElements.length));
+  }
+
+  int count() {
+    return matches().length;
+  }
+
+  // The expression relative to a top-level element, or null when that would change its result.
+  // Only "//name" followed by child and descendant steps qualifies, so every match lies inside the
+  // top-level subtree the evaluation starts from and the root itself cannot match. The first step's
+  // predicates must not depend on position, which "descendant-or-self::" counts differently; anything
+  // this check cannot prove safe, such as axes, unions, parent steps or functions outside predicates,
+  // runs sequentially.
+  static String partitionedForm(String xpath, String rootName) {
+    String expression = xpath.trim();
+    if (!expression.startsWith("//")) {
+      return null;
+    }
+    int nameEnd = 2;
+    while (nameEnd < expression.length() && isNameChar(expression.charAt(nameEnd))) {
+      nameEnd++;
+    }
+    String firstName = expression.substring(2, nameEnd);
+    if (firstName.isEmpty() || !isNameStart(firstName.charAt(0)) || firstName.equals(rootName)
+        || firstName.contains("::")) {
+      return null;
+    }
+
+    int depth = 0;
+    char quote = 0;
+    int predicateStart = -1;
+    boolean firstStep = true;
+    for (int i = nameEnd; i < expression.length(); i++) {
+      char c = expression.charAt(i);
+      if (quote != 0) {
+        if (c == quote) {
+          quote = 0;
+        }
+      } else if (depth > 0) {
+        if (c == '\'' || c == '"') {
+          quote = c;
+        } else if (c == '[') {
+          depth++;
+        } else if (c == ']' && --depth == 0 && firstStep && isPositional(expression.substring(predicateStart, i))) {
+          return null;
+        }
+      } else if (c == '[') {
+        depth = 1;
+        predicateStart = i + 1;
+      } else if (c == '/') {
+        firstStep = false;
+      } else if (c == ':' && i + 1 < expression.length() && expression.charAt(i + 1) == ':') {
+        return null;
+      } else if (!isNameChar(c) && c != '*' && c != '@') {
+        return null;
+      }
+    }
+    if (depth != 0 || quote != 0) {
+      return null;
+    }
+    return "descendant-or-self::" + expression.substring(2);
+  }
+
+  // Numbers, position() and last() select by position; a predicate without a comparison that calls a
+  // function or does arithmetic may evaluate to a number, so it is treated as positional too
+  private static boolean isPositional(String predicate) {
+    String p = predicate.trim();
+    if (p.isEmpty() || p.contains("position(") || p.contains("last(")) {
+      return true;
+    }
+    char first = p.charAt(0);
+    if (Character.isDigit(first) || first == '-' || first == '(' || first == '$' || first == '.') {
+      return true;
+    }
+    if (p.indexOf('=') != -1 || p.indexOf('<') != -1 || p.indexOf('>') != -1) {
+      return false;
+    }
+    if (p.startsWith("contains(") || p.startsWith("starts-with(") || p.startsWith("not(") || p.startsWith("boolean(")) {
+      return false;
+    }
+    return p.indexOf('(') != -1 || p.indexOf('+') != -1 || p.indexOf('*') != -1
+        || p.contains(" div ") || p.contains(" mod ");
+  }
+
+  private static boolean isNameStart(char c) {
+    return Character.isLetter(c) || c == '_';
+  }
+
+  // '.' is left out so that "." and ".." steps are rejected; names containing dots run sequentially
+  private static boolean isNameChar(char c) {
+    return Character.isLetterOrDigit(c) || c == '_' || c == '-' || c == ':';
+  }
+
+  private int tokenStart(int element) {
+    return element < topLevelElements.length ? topLevelElements[element] : tokenCount;
+  }
+
+  private final class Partition extends RecursiveTask<int[]> {
+    private static final long serialVersionUID = 1L;
+
+    private final int from;
+    private final int to;
+
+    Partition(int from, int to) {
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected int[] compute() {
+      if (to - from == 1 || tokenStart(to) - tokenStart(from) <= grain) {
+        return evaluate();
+      }
+      // Split where the token range halves, not the element count, so one large subtree ends up alone
+      int middle = Arrays.binarySearch(topLevelElements, from, to, (tokenStart(from) + tokenStart(to)) >>> 1);
+      if (middle < 0) {
+        middle = -middle - 1;
+      }
+      middle = Math.min(Math.max(middle, from + 1), to - 1);
+      Partition right = new Partition(middle, to);
+      right.fork();
+      int[] left = new Partition(from, middle).compute();
+      int[] rest = right.join();
+      if (left.length == 0) {
+        return rest;
+      }
+      int[] joined = Arrays.copyOf(left, left.length + rest.length);
+      System.arraycopy(rest, 0, joined, left.length, rest.length);
+      return joined;
+    }
+
+    private int[] evaluate() {
+      int[] found = new int[16];
+      int count = 0;
+      VTDDocument.QueryCursor cursor = document.acquireCursor();
+      try {
+        VTDNav nav = cursor.nav;
+        AutoPilot autoPilot = cursor.xpathCache.getAutoPilot(expression);
+        for (int element = from; element < to; element++) {
+          nav.recoverNode(topLevelElements[element]);
+          autoPilot.resetXPath();
+          int xpathIndex;
+          while ((xpathIndex = autoPilot.evalXPath()) != -1) {
+            if (attributeName != null) {
+              int valueIndex = nav.getAttrVal(attributeName);
+              if (valueIndex == -1 || nav.compareTokenString(valueIndex, attributeValue) != 0) {
+                continue;
+              }
+            }
+            if (count == found.length) {
+              found = Arrays.copyOf(found, count * 2);
+            }
+            found[count++] = xpathIndex;
+          }
+        }
+      } catch (NavException | XPathEvalException e) {
+        throw new VTDParserException("Failed to evaluate " + expression + " in parallel", e);
+      } finally {
+        document.releaseCursor(cursor);
+      }
+      return Arrays.copyOf(found, count);
+    }
+  }
+}
@@ -0,0 +1,63 @@
+package com.vtdparser;
+
+import com.ximpleware.VTDGen;
+
+// A VTDGen and an input array recycled between documents in parser-reuse mode. VTDGen.setDoc_BR
+// keeps the token and location-cache buffers of the previous parse, and clear() resets them, so a
+// steady stream of small documents parses without reallocating them. The VTD records of a document
+// live in these buffers: whoever holds them owns the last document parsed with them, and must not
+// release them while that document is still in use. Each thread keeps one idle set, and only while the
+// last document parsed with it was small enough that its buffers are worth pinning.
+final class ParserBuffers {
+  // After a larger document the whole set is dropped on release instead of being pinned by an idle
+  // thread: the VTDGen's token and location-cache buffers grow with the document just like the input
+  private static final int MAX_RETAINED_DOCUMENT = 1 << 22;
+  private static final ThreadLocal<ParserBuffers> IDLE = new ThreadLocal<>();
+
+  private final VTDGen vtdGen = new VTDGen();
+  private byte[] input;
+  private int lastDocumentLength;
+
+  private ParserBuffers() {
+  }
+
+  // The calling thread's idle buffers, or a fresh set when another parser on this thread holds them
+  static ParserBuffers acquire() {
+    ParserBuffers buffers = IDLE.get();
+    if (buffers != null) {
+      IDLE.remove();
+      return buffers;
+    }
+    return new ParserBuffers();
+  }
+
+  void release() {
+    if (lastDocumentLength > MAX_RETAINED_DOCUMENT || (input != null && input.length > MAX_RETAINED_DOCUMENT)) {
+      return;
+    }
+    if (IDLE.get() == null) {
+      IDLE.set(this);
+    }
+  }
+
+  VTDGen prepare(int documentLength) {
+    lastDocumentLength = documentLength;
+    vtdGen.clear();
+    return vtdGen;
+  }
+
+  byte[] input(int minCapacity) {
+    if (input == null || input.length < minCapacity) {
+      input = new byte[minCapacity];
+    }
+    return input;
+  }
+
+  // Doubles the input array, keeping the first used bytes
+  byte[] growInput(int used) {
+    byte[] grown = new byte[(int) Math.min((long) input.length * 2, Integer.MAX_VALUE - 8)];
+    System.arraycopy(input, 0, grown, 0, used);
+    input = grown;
+    return grown;
+  }
+}
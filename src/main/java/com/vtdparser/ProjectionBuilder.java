@@ -0,0 +1,60 @@
+package com.vtdparser;
+
+import com.vtdparser.model.ElementSource;
+import com.vtdparser.model.Projection;
+
+import java.util.Arrays;
+
+// Accumulates projected values straight into growable column arrays while a query walks its matches
+final class ProjectionBuilder {
+  private final String[] columns;
+  private final boolean[] textColumns;
+  private int[] tokenIndexes = new int[16];
+  private String[][] values;
+  private int size;
+
+  ProjectionBuilder(String[] columns) {
+    this.columns = columns;
+    this.textColumns = new boolean[columns.length];
+    this.values = new String[columns.length][16];
+    for (int column = 0; column < columns.length; column++) {
+      textColumns[column] = Projection.TEXT.equals(columns[column]);
+    }
+  }
+
+  int getColumnCount() {
+    return columns.length;
+  }
+
+  String getColumn(int column) {
+    return columns[column];
+  }
+
+  boolean isTextColumn(int column) {
+    return textColumns[column];
+  }
+
+  int size() {
+    return size;
+  }
+
+  void addRow(int tokenIndex) {
+    if (size == tokenIndexes.length) {
+      int capacity = size * 2;
+      tokenIndexes = Arrays.copyOf(tokenIndexes, capacity);
+      for (int column = 0; column < values.length; column++) {
+        values[column] = Arrays.copyOf(values[column], capacity);
+      }
+    }
+    tokenIndexes[size++] = tokenIndex;
+  }
+
+  // Sets a value on the row added last
+  void set(int column, String value) {
+    values[column][size - 1] = value;
+  }
+
+  Projection build(ElementSource source) {
+    return new Projection(columns, tokenIndexes, values, size, source);
+  }
+}
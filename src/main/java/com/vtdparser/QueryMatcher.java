@@ -0,0 +1,90 @@
+package com.vtdparser;
+
+import com.vtdparser.query.AttributePredicate;
+import com.vtdparser.query.ElementQuery;
+import com.ximpleware.NavException;
+import com.ximpleware.VTDNav;
+
+import java.util.List;
+
+// Tests a starting-tag token against an ElementQuery by comparing the raw tag and attribute tokens
+// in place; no String is created for a candidate element. Holds no navigation state, so one matcher
+// can be shared by scans on different cursors.
+final class QueryMatcher {
+  private final ElementQuery query;
+  private final String tagName;
+  private final String[] attributeNames;
+  private final AttributePredicate.Operator[] operators;
+  private final String[][] values;
+  private final long allSatisfied;
+
+  QueryMatcher(ElementQuery query) {
+    this.query = query;
+    this.tagName = query.getTagName();
+    List<AttributePredicate> predicates = query.getPredicates();
+    int count = predicates.size();
+    this.attributeNames = new String[count];
+    this.operators = new AttributePredicate.Operator[count];
+    this.values = new String[count][];
+    for (int i = 0; i < count; i++) {
+      AttributePredicate predicate = predicates.get(i);
+      attributeNames[i] = predicate.getAttributeName();
+      operators[i] = predicate.getOperator();
+      values[i] = predicate.getValues().toArray(new String[0]);
+    }
+    this.allSatisfied = count == 64 ? -1L : (1L << count) - 1;
+  }
+
+  ElementQuery getQuery() {
+    return query;
+  }
+
+  // Null when any tag matches
+  String getTagName() {
+    return tagName;
+  }
+
+  boolean matches(VTDNav vtdNav, int elementIndex, int tokenCount) throws NavException {
+    if (tagName != null && !vtdNav.matchTokenString(elementIndex, tagName)) {
+      return false;
+    }
+    return matchesAttributes(vtdNav, elementIndex, tokenCount);
+  }
+
+  // Attribute name/value tokens directly follow the starting tag token
+  boolean matchesAttributes(VTDNav vtdNav, int elementIndex, int tokenCount) throws NavException {
+    if (allSatisfied == 0) {
+      return true;
+    }
+    long satisfied = 0;
+    for (int i = elementIndex + 1; i + 1 < tokenCount; i += 2) {
+      int tokenType = vtdNav.getTokenType(i);
+      if (tokenType != VTDNav.TOKEN_ATTR_NAME && tokenType != VTDNav.TOKEN_ATTR_NS) {
+        break;
+      }
+      for (int p = 0; p < attributeNames.length; p++) {
+        long bit = 1L << p;
+        if ((satisfied & bit) == 0 && vtdNav.matchTokenString(i, attributeNames[p]) && valueMatches(vtdNav, i + 1, p)) {
+          satisfied |= bit;
+        }
+      }
+    }
+    return satisfied == allSatisfied;
+  }
+
+  private boolean valueMatches(VTDNav vtdNav, int valueIndex, int predicate) throws NavException {
+    switch (operators[predicate]) {
+      case EQUALS:
+        return vtdNav.matchTokenString(valueIndex, values[predicate][0]);
+      case PREFIX:
+        return vtdNav.startsWith(valueIndex, values[predicate][0]);
+      default:
+        for (String value : values[predicate]) {
+          if (vtdNav.matchTokenString(valueIndex, value)) {
+            return true;
+          }
+        }
+        return false;
+    }
+  }
+}
@@ -0,0 +1,175 @@
+package com.vtdparser;
+
+import com.vtdparser.model.Element;
+import com.vtdparser.query.ElementQuery;
+import com.vtdparser.query.QueryBatch;
+import com.ximpleware.NavException;
+import com.ximpleware.VTDNav;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+// Evaluates every query of a batch in one forward pass over the token buffer. Queries are grouped by
+// tag, so each starting tag costs at most one raw name comparison per distinct tag before the
+// attribute tests of the matching group run. The pass ends once every query is finished.
+final class QuerySweep {
+  private final VTDDocument document;
+  private final QueryMatcher[] matchers;
+  private final List<Predicate<Element>> collectors;
+  private final int[] counts;
+  private final int[] scopeStarts;
+  private final int[] scopeDepths;
+  private final boolean[] finished;
+  private final String[] groupTags;
+  private final int[][] groupQueries;
+  private final int[] groupRemaining;
+  private final int[] anyTagQueries;
+  private int remaining;
+
+  QuerySweep(VTDDocument document, QueryBatch batch) {
+    this.document = document;
+    int size = batch.size();
+    this.matchers = new QueryMatcher[size];
+    this.collectors = new ArrayList<>(size);
+    this.counts = new int[size];
+    this.scopeStarts = new int[size];
+    this.scopeDepths = new int[size];
+    this.finished = new boolean[size];
+
+    Map<String, List<Integer>> byTag = new LinkedHashMap<>();
+    List<Integer> anyTag = new ArrayList<>();
+    for (int q = 0; q < size; q++) {
+      ElementQuery query = batch.getQueries().get(q);
+      matchers[q] = new QueryMatcher(query);
+      collectors.add(batch.getCollector(q));
+      scopeDepths[q] = -1;
+      if (query.getTagName() == null) {
+        anyTag.add(q);
+      } else {
+        byTag.computeIfAbsent(query.getTagName(), tag -> new ArrayList<>()).add(q);
+      }
+    }
+    this.groupTags = byTag.keySet().toArray(new String[0]);
+    this.groupQueries = new int[groupTags.length][];
+    this.groupRemaining = new int[groupTags.length];
+    for (int g = 0; g < groupTags.length; g++) {
+      groupQueries[g] = byTag.get(groupTags[g]).stream().mapToInt(Integer::intValue).toArray();
+      groupRemaining[g] = groupQueries[g].length;
+    }
+    this.anyTagQueries = anyTag.stream().mapToInt(Integer::intValue).toArray();
+    this.remaining = size;
+  }
+
+  // Returns the number of matches of each query, in batch order
+  int[] run() {
+    VTDDocument.QueryCursor cursor = document.acquireCursor();
+    int examined = 0;
+    try {
+      VTDNav vtdNav = cursor.nav;
+      int tokenCount = vtdNav.getTokenCount();
+      int startIndex = initScopes(vtdNav, tokenCount);
+      boolean scoped = hasScopes();
+      for (int i = startIndex; i < tokenCount && remaining > 0; i++) {
+        int tokenType = vtdNav.getTokenType(i);
+        if (scoped) {
+          closeScopes(vtdNav, i, tokenType);
+        }
+        if (tokenType != VTDNav.TOKEN_STARTING_TAG) {
+          continue;
+        }
+        examined++;
+        for (int g = 0; g < groupTags.length; g++) {
+          // A token has one name, so at most one group can match it
+          if (groupRemaining[g] > 0 && vtdNav.matchTokenString(i, groupTags[g])) {
+            for (int q : groupQueries[g]) {
+              evaluate(vtdNav, q, i, tokenCount);
+            }
+            break;
+          }
+        }
+        for (int q : anyTagQueries) {
+          evaluate(vtdNav, q, i, tokenCount);
+        }
+      }
+    } catch (NavException e) {
+      // Exceptions from the batch's collectors propagate
+      System.err.println("Error in evaluate: " + e.getMessage());
+    } finally {
+      document.releaseCursor(cursor);
+    }
+    QueryTrace.addNodesVisited(examined);
+    return counts;
+  }
+
+  private int initScopes(VTDNav vtdNav, int tokenCount) {
+    int startIndex = Integer.MAX_VALUE;
+    for (int q = 0; q < matchers.length; q++) {
+      ElementQuery query = matchers[q].getQuery();
+      Element scope = query.getScope();
+      if (query.getLimit() <= 0) {
+        finish(q);
+        continue;
+      }
+      if (scope != null) {
+        int scopeIndex = scope.getXpathIndex();
+        if (scopeIndex < 0 || scopeIndex >= tokenCount || vtdNav.getTokenType(scopeIndex) != VTDNav.TOKEN_STARTING_TAG) {
+          finish(q);
+          continue;
+        }
+        scopeStarts[q] = scopeIndex + 1;
+        scopeDepths[q] = vtdNav.getTokenDepth(scopeIndex);
+      }
+      startIndex = Math.min(startIndex, scopeStarts[q]);
+    }
+    return startIndex == Integer.MAX_VALUE ? tokenCount : startIndex;
+  }
+
+  private boolean hasScopes() {
+    for (int depth : scopeDepths) {
+      if (depth >= 0) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private void closeScopes(VTDNav vtdNav, int tokenIndex, int tokenType) {
+    for (int q = 0; q < matchers.length; q++) {
+      if (!finished[q] && scopeDepths[q] >= 0 && tokenIndex >= scopeStarts[q]
+          && VTDXMLParser.leavesScope(vtdNav, tokenIndex, tokenType, scopeDepths[q])) {
+        finish(q);
+      }
+    }
+  }
+
+  private void evaluate(VTDNav vtdNav, int q, int elementIndex, int tokenCount) throws NavException {
+    if (finished[q] || elementIndex < scopeStarts[q] || !matchers[q].matchesAttributes(vtdNav, elementIndex, tokenCount)) {
+      return;
+    }
+    counts[q]++;
+    Predicate<Element> collector = collectors.get(q);
+    boolean more = collector == null || collector.test(new Element(document.getElementSource(), elementIndex));
+    if (!more || counts[q] >= matchers[q].getQuery().getLimit()) {
+      finish(q);
+    }
+  }
+
+  private void finish(int q) {
+    if (finished[q]) {
+      return;
+    }
+    finished[q] = true;
+    remaining--;
+    String tagName = matchers[q].getTagName();
+    if (tagName != null) {
+      for (int g = 0; g < groupTags.length; g++) {
+        if (groupTags[g].equals(tagName)) {
+          groupRemaining[g]--;
+        }
+      }
+    }
+  }
+}
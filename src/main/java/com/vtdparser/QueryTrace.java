@@ -0,0 +1,71 @@
+package com.vtdparser;
+
+import com.vtdparser.util.SlowQueryLog;
+
+// Cost of the public query running on the current thread, collected for the slow-query log. Query code
+// reports into whichever trace is active; with the log disabled no trace is ever installed and the
+// static hooks reduce to a thread-local read. Traces nest, so a visitor may run queries of its own.
+final class QueryTrace {
+  private static final ThreadLocal<QueryTrace> CURRENT = new ThreadLocal<>();
+
+  private final QueryTrace outer;
+  private final long startNanos;
+  private long materializationNanos;
+  private long nodesVisited;
+  private long elapsedNanos;
+
+  private QueryTrace(QueryTrace outer, long startNanos) {
+    this.outer = outer;
+    this.startNanos = startNanos;
+  }
+
+  static QueryTrace begin(SlowQueryLog slowQueryLog) {
+    if (!slowQueryLog.isEnabled()) {
+      return null;
+    }
+    QueryTrace trace = new QueryTrace(CURRENT.get(), System.nanoTime());
+    CURRENT.set(trace);
+    return trace;
+  }
+
+  static void addNodesVisited(long count) {
+    QueryTrace trace = CURRENT.get();
+    if (trace != null) {
+      trace.nodesVisited += count;
+    }
+  }
+
+  // Returns the start time to hand back to endMaterialization, or 0 when nothing is being traced
+  static long startMaterialization() {
+    return CURRENT.get() != null ? System.nanoTime() : 0L;
+  }
+
+  static void endMaterialization(long startNanos) {
+    if (startNanos != 0L) {
+      QueryTrace trace = CURRENT.get();
+      if (trace != null) {
+        trace.materializationNanos += System.nanoTime() - startNanos;
+      }
+    }
+  }
+
+  // Uninstalls the trace. Callers run this in a finally block, so a query that throws, such as one whose
+  // visitor fails, cannot leave its trace installed as the outer trace of every later query on the thread.
+  void end() {
+    elapsedNanos = System.nanoTime() - startNanos;
+    if (outer != null) {
+      CURRENT.set(outer);
+    } else {
+      CURRENT.remove();
+    }
+  }
+
+  // Whether the ended query crossed the slow-query threshold
+  boolean isSlow(SlowQueryLog slowQueryLog) {
+    return slowQueryLog.isSlow(elapsedNanos);
+  }
+
+  void record(SlowQueryLog slowQueryLog, String operation, String expression, int matchCount) {
+    slowQueryLog.record(operation, expression, elapsedNanos, matchCount, materializationNanos, nodesVisited);
+  }
+}
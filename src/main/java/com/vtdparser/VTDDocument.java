@@ -0,0 +1,172 @@
+package com.vtdparser;
+
+import com.vtdparser.cache.CacheStatistics;
+import com.vtdparser.cache.XPathCache;
+import com.vtdparser.index.AttributeIndex;
+import com.vtdparser.index.PositionIndex;
+import com.vtdparser.model.ElementSource;
+import com.vtdparser.util.PerformanceMetrics;
+import com.ximpleware.NavException;
+import com.ximpleware.VTDNav;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedDeque;
+
+// Immutable handle on a loaded document. The VTD buffers and indexes are shared read-only; every query
+// borrows a cursor (a cloned VTDNav plus its own compiled-XPath cache) so threads never share navigation state.
+final class VTDDocument {
+  private final VTDNav documentNav;
+  private final PositionIndex positionIndex;
+  private final AttributeIndex attributeIndex;
+  private final int xpathCacheSize;
+  private final PerformanceMetrics metrics;
+  private final CacheStatistics cacheStatistics = new CacheStatistics();
+  private final ConcurrentLinkedDeque<QueryCursor> idleCursors = new ConcurrentLinkedDeque<>();
+  private final ElementSource elementSource;
+  private final byte[] documentBytes;
+  private final int documentLength;
+  private final int encoding;
+  // Token indexes of the root's child elements and the root's name, found on first use
+  private volatile int[] topLevelElements;
+  private volatile String rootName;
+
+  VTDDocument(VTDNav documentNav, int documentLength, PositionIndex positionIndex, AttributeIndex attributeIndex,
+              int xpathCacheSize, PerformanceMetrics metrics) {
+    this.documentNav = documentNav;
+    this.positionIndex = positionIndex;
+    this.attributeIndex = attributeIndex;
+    this.xpathCacheSize = xpathCacheSize;
+    this.metrics = metrics;
+    this.elementSource = new VTDXMLParser.NavElementSource(this);
+    // The parsed buffer itself, not a copy; token offsets index straight into it
+    this.documentBytes = documentNav.getXML().getBytes();
+    // Pooled and reused buffers are usually larger than the document they hold
+    this.documentLength = documentLength;
+    this.encoding = documentNav.getEncoding();
+  }
+
+  QueryCursor acquireCursor() {
+    // Most recently released first, so a single-threaded caller keeps hitting the same warm cache
+    QueryCursor cursor = idleCursors.pollFirst();
+    if (cursor == null) {
+      VTDNav nav = documentNav.cloneNav();
+      cursor = new QueryCursor(nav, new XPathCache(nav, xpathCacheSize, cacheStatistics, metrics));
+    }
+    return cursor;
+  }
+
+  void releaseCursor(QueryCursor cursor) {
+    idleCursors.offerFirst(cursor);
+  }
+
+  // Private navigator for work that must own its cursor outright, such as an XMLModifier binding
+  VTDNav cloneNav() {
+    return documentNav.cloneNav();
+  }
+
+  // Partition points for parallel queries, in document order
+  int[] getTopLevelElements() throws NavException {
+    int[] elements = topLevelElements;
+    if (elements == null) {
+      VTDNav nav = documentNav.cloneNav();
+      int[] found = new int[16];
+      int count = 0;
+      nav.toElement(VTDNav.ROOT);
+      rootName = nav.toString(nav.getCurrentIndex());
+      if (nav.toElement(VTDNav.FIRST_CHILD)) {
+        do {
+          if (count == found.length) {
+            found = Arrays.copyOf(found, count * 2);
+          }
+          found[count++] = nav.getCurrentIndex();
+        } while (nav.toElement(VTDNav.NEXT_SIBLING));
+      }
+      elements = Arrays.copyOf(found, count);
+      topLevelElements = elements;
+    }
+    return elements;
+  }
+
+  String getRootName() throws NavException {
+    getTopLevelElements();
+    return rootName;
+  }
+
+  int getTokenCount() {
+    return documentNav.getTokenCount();
+  }
+
+  PositionIndex getPositionIndex() {
+    return positionIndex;
+  }
+
+  AttributeIndex getAttributeIndex() {
+    return attributeIndex;
+  }
+
+  ElementSource getElementSource() {
+    return elementSource;
+  }
+
+  PerformanceMetrics getMetrics() {
+    return metrics;
+  }
+
+  CacheStatistics getCacheStatistics() {
+    return cacheStatistics;
+  }
+
+  byte[] getDocumentBytes() {
+    return documentBytes;
+  }
+
+  Charset getCharset() {
+    switch (encoding) {
+      case VTDNav.FORMAT_ISO_8859_1:
+        return StandardCharsets.ISO_8859_1;
+      case VTDNav.FORMAT_UTF_16BE:
+        return StandardCharsets.UTF_16BE;
+      case VTDNav.FORMAT_UTF_16LE:
+        return StandardCharsets.UTF_16LE;
+      default:
+        return StandardCharsets.UTF_8; // ASCII is a subset
+    }
+  }
+
+  // Token offsets and lengths count native characters, which are two bytes wide in UTF-16 documents
+  int getByteShift() {
+    return encoding == VTDNav.FORMAT_UTF_16BE || encoding == VTDNav.FORMAT_UTF_16LE ? 1 : 0;
+  }
+
+  long getMemoryFootprint() {
+    return documentLength + 8L * getTokenCount() + getIndexMemoryFootprint();
+  }
+
+  // Forgets the pooled cursors; each holds a cloned VTDNav and its compiled XPath expressions
+  void release() {
+    idleCursors.clear();
+  }
+
+  long getIndexMemoryFootprint() {
+    long bytes = 0;
+    if (positionIndex != null) {
+      bytes += positionIndex.getMemoryFootprint();
+    }
+    if (attributeIndex != null) {
+      bytes += attributeIndex.getMemoryFootprint();
+    }
+    return bytes;
+  }
+
+  static final class QueryCursor {
+    final VTDNav nav;
+    final XPathCache xpathCache;
+
+    QueryCursor(VTDNav nav, XPathCache xpathCache) {
+      this.nav = nav;
+      this.xpathCache = xpathCache;
+    }
+  }
+}
@@ -1,21 +1,58 @@
 package com.vtdparser;
 
+import com.vtdparser.cache.CacheStatistics;
+import com.vtdparser.config.AttributeIndexMode;
 import com.vtdparser.config.ParserConfiguration;
+import com.vtdparser.exception.VTDParserException;
+import com.vtdparser.exception.XPathParsingException;
+import com.vtdparser.index.AttributeIndex;
+import com.vtdparser.index.IndexStore;
+import com.vtdparser.index.PositionIndex;
 import com.vtdparser.model.Element;
+import com.vtdparser.model.ElementSource;
+import com.vtdparser.model.Projection;
+import com.vtdparser.model.TokenValue;
 import com.vtdparser.model.ValidationResult;
+import com.vtdparser.query.ElementQuery;
+import com.vtdparser.query.QueryBatch;
+import com.vtdparser.util.BufferPool;
+import com.vtdparser.util.PerformanceMetrics;
+import com.vtdparser.util.SlowQueryLog;
 import com.ximpleware.AutoPilot;
 import com.ximpleware.NavException;
 import com.ximpleware.VTDGen;
 import com.ximpleware.VTDNav;
+import com.ximpleware.XPathEvalException;
 
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
+// Queries are safe to run from any number of threads once a document is loaded: each one borrows its
+// own cloned cursor from the shared document handle. Loading a document is not meant to race queries.
 public class VTDXMLParser implements AutoCloseable {
   // Core VTD-XML components
   private VTDGen vtdGen;
-  private VTDNav vtdNav;
-  private AutoPilot autoPilot;
+  private volatile VTDDocument document;
+  private volatile HugeDocument hugeDocument;
   private ParserConfiguration configuration;
+  private final PerformanceMetrics metrics;
+  private final SlowQueryLog slowQueryLog;
+  private byte[] pooledBuffer;
+  private ParserBuffers parserBuffers;
 
   public VTDXMLParser() {
     this(new ParserConfiguration());
@@ -23,78 +60,861 @@ public class VTDXMLParser implements AutoCloseable {
 
   public VTDXMLParser(ParserConfiguration configuration) {
     this.configuration = configuration;
-    this.vtdGen = new VTDGen();
+    this.metrics = new PerformanceMetrics(configuration.isMetricsEnabled());
+    this.slowQueryLog = new SlowQueryLog(configuration.getSlowQueryThresholdMillis(), configuration.getSlowQueryLogSize());
+    if (configuration.getMetricsMBeanName() != null) {
+      metrics.registerMBean(configuration.getMetricsMBeanName());
+    }
   }
 
-  public void loadDocument(String xmlFilePath) throws Exception {
-    if (!vtdGen.parseFile(xmlFilePath, false)) {
-      throw new Exception("Failed to parse XML file: " + xmlFilePath);
+  public synchronized void loadDocument(String xmlFilePath) throws Exception {
+    long start = metrics.startTimer();
+    if (configuration.isMemoryMapped()) {
+      hugeDocument = HugeDocument.load(xmlFilePath, false, metrics);
+      releaseDocument();
+      this.vtdGen = null;
+      metrics.recordLoad(start, new File(xmlFilePath).length());
+      return;
+    }
+
+    if (configuration.isParserReuseEnabled() && !configuration.isPersistentIndexEnabled()) {
+      // Read into the recycled input array instead of letting parseFile allocate one per document
+      File file = new File(xmlFilePath);
+      try (InputStream in = new FileInputStream(file)) {
+        readReusing(in, file.length());
+      }
+      metrics.recordLoad(start, file.length());
+      return;
     }
-    vtdNav = vtdGen.getNav();
-    autoPilot = new AutoPilot(vtdNav);
+
+    if (vtdGen == null) {
+      vtdGen = new VTDGen();
+    }
+    IndexStore indexStore = configuration.isPersistentIndexEnabled()
+        ? new IndexStore(xmlFilePath, configuration.getIndexDirectory(), configuration.isIndexChecksumEnabled())
+        : null;
+    // Taken before the document is read, so the stored metadata describes the bytes actually parsed
+    IndexStore.Fingerprint source = indexStore != null ? indexStore.fingerprint() : null;
+    IndexStore.Snapshot snapshot = indexStore != null ? indexStore.load(vtdGen, source) : null;
+    boolean indexesChanged = snapshot == null;
+    boolean indexStored = snapshot != null;
+    long bytesParsed = 0;
+    VTDNav vtdNav;
+    if (snapshot != null) {
+      // A fresh index on disk replaces tokenizing the document again
+      vtdNav = snapshot.getNav();
+    } else {
+      if (!vtdGen.parseFile(xmlFilePath, false)) {
+        throw new Exception("Failed to parse XML file: " + xmlFilePath);
+      }
+      bytesParsed = new File(xmlFilePath).length();
+      if (indexStore != null) {
+        indexStored = writeIndexQuietly(indexStore);
+      }
+      vtdNav = vtdGen.getNav();
+    }
+    // parseFile and loadIndex read the file into an array of exactly its size
+    installDocument(vtdNav, vtdNav.getXML().length(), snapshot, indexStore, source, indexStored, indexesChanged, null);
     this.vtdGen = null; // Clear VTDGen to free resources
+    metrics.recordLoad(start, bytesParsed);
+  }
+
+  public synchronized void loadDocument(byte[] xml) throws Exception {
+    loadDocument(xml, 0, xml.length);
+  }
+
+  // The array becomes the document buffer without a copy, so the caller hands over ownership and must
+  // not modify it while the document is loaded. Byte sources are always parsed into the heap, even
+  // when the configuration asks for memory mapping.
+  public synchronized void loadDocument(byte[] xml, int offset, int length) throws Exception {
+    long start = metrics.startTimer();
+    parseBytes(xml, offset, length, null);
+    metrics.recordLoad(start, length);
+  }
+
+  // Heap buffers are used in place from their position to their limit, with the same ownership rule
+  // as loadDocument(byte[]); direct and read-only buffers are copied into a pooled array first.
+  public synchronized void loadDocument(ByteBuffer xml) throws Exception {
+    long start = metrics.startTimer();
+    int length = xml.remaining();
+    if (xml.hasArray() && !xml.isReadOnly()) {
+      parseBytes(xml.array(), xml.arrayOffset() + xml.position(), length, null);
+    } else if (configuration.isParserReuseEnabled()) {
+      releaseDocument(); // Its buffer may be the one about to be overwritten
+      byte[] buffer = reusableBuffers().input(length);
+      xml.duplicate().get(buffer, 0, length);
+      parseBytes(buffer, 0, length, null);
+    } else {
+      byte[] buffer = BufferPool.shared().acquire(length);
+      xml.duplicate().get(buffer, 0, length);
+      parsePooled(buffer, length);
+    }
+    metrics.recordLoad(start, length);
+  }
+
+  // Reads the stream to its end into a pooled buffer sized from the hint (or the configured buffer size
+  // when the hint is smaller) and grown by doubling; the stream is not closed. The buffer returns to the
+  // pool when the parser is closed.
+  public synchronized void loadDocument(InputStream in, long sizeHint) throws Exception {
+    long start = metrics.startTimer();
+    int length = configuration.isParserReuseEnabled() ? readReusing(in, sizeHint) : readPooled(in, sizeHint);
+    metrics.recordLoad(start, length);
+  }
+
+  private int readPooled(InputStream in, long sizeHint) throws Exception {
+    BufferPool pool = BufferPool.shared();
+    // One spare byte lets a correct hint reach end of stream without growing
+    byte[] buffer = pool.acquire(Math.max(sizeHint + 1, configuration.getBufferSize()));
+    int length = 0;
+    try {
+      int read;
+      while ((read = in.read(buffer, length, buffer.length - length)) != -1) {
+        length += read;
+        if (length == buffer.length) {
+          buffer = pool.grow(buffer, length);
+        }
+      }
+    } catch (IOException | RuntimeException e) {
+      pool.release(buffer);
+      throw e;
+    }
+    parsePooled(buffer, length);
+    return length;
+  }
+
+  private int readReusing(InputStream in, long sizeHint) throws Exception {
+    releaseDocument(); // Its buffer may be the one about to be overwritten
+    ParserBuffers buffers = reusableBuffers();
+    byte[] buffer = buffers.input((int) Math.min(Math.max(sizeHint + 1, configuration.getBufferSize()), Integer.MAX_VALUE - 8));
+    int length = 0;
+    int read;
+    while ((read = in.read(buffer, length, buffer.length - length)) != -1) {
+      length += read;
+      if (length == buffer.length) {
+        buffer = buffers.growInput(length);
+      }
+    }
+    parseBytes(buffer, 0, length, null);
+    return length;
+  }
+
+  private void parsePooled(byte[] buffer, int length) throws Exception {
+    try {
+      parseBytes(buffer, 0, length, buffer);
+    } catch (Exception e) {
+      BufferPool.shared().release(buffer);
+      throw e;
+    }
+  }
+
+  private void parseBytes(byte[] xml, int offset, int length, byte[] pooledBuffer) throws Exception {
+    VTDGen generator;
+    if (configuration.isParserReuseEnabled()) {
+      // The previous document's VTD records are about to be overwritten; elements taken from it are
+      // no longer valid
+      releaseDocument();
+      generator = reusableBuffers().prepare(length);
+      generator.setDoc_BR(xml, offset, length);
+    } else {
+      if (vtdGen == null) {
+        vtdGen = new VTDGen();
+      }
+      generator = vtdGen;
+      generator.setDoc(xml, offset, length);
+    }
+    generator.parse(false);
+    installDocument(generator.getNav(), length, null, null, null, false, true, pooledBuffer);
+    this.vtdGen = null;
+  }
+
+  // Held from the first reuse-mode load until close(), so reloading this parser recycles the same set
+  private ParserBuffers reusableBuffers() {
+    if (parserBuffers == null) {
+      parserBuffers = ParserBuffers.acquire();
+    }
+    return parserBuffers;
+  }
+
+  // The reuse-mode buffers this parser holds, if any
+  ParserBuffers heldBuffers() {
+    return parserBuffers;
+  }
+
+  // Builds or adopts the configured indexes and publishes the document, replacing whatever was loaded
+  private void installDocument(VTDNav vtdNav, int documentLength, IndexStore.Snapshot snapshot, IndexStore indexStore,
+                               IndexStore.Fingerprint source, boolean indexStored, boolean indexesChanged,
+                               byte[] pooledBuffer) throws NavException {
+    PositionIndex positionIndex = null;
+    if (configuration.isPositionIndexEnabled()) {
+      positionIndex = snapshot != null ? snapshot.getPositionIndex() : null;
+      if (positionIndex == null) {
+        positionIndex = PositionIndex.build(vtdNav);
+        indexesChanged = true;
+      }
+    }
+    AttributeIndex attributeIndex = null;
+    if (configuration.getAttributeIndexMode() != AttributeIndexMode.DISABLED) {
+      attributeIndex = snapshot != null ? snapshot.getAttributeIndex() : null;
+      if (attributeIndex == null) {
+        attributeIndex = new AttributeIndex(vtdNav.cloneNav());
+      }
+      if (configuration.getAttributeIndexMode() == AttributeIndexMode.EAGER) {
+        int indexedKeys = attributeIndex.getIndexedKeyCount();
+        attributeIndex.buildAll(configuration.getIndexedAttributes());
+        indexesChanged |= attributeIndex.getIndexedKeyCount() != indexedKeys;
+      }
+    }
+
+    if (indexStore != null && indexStored && indexesChanged) {
+      try {
+        indexStore.writeMetadata(source, positionIndex, attributeIndex);
+      } catch (Exception e) {
+        System.err.println("Error writing VTD index metadata: " + e.getMessage());
+      }
+    }
+    releaseDocument();
+    document = new VTDDocument(vtdNav, documentLength, positionIndex, attributeIndex,
+        configuration.getXpathCacheSize(), metrics);
+    this.pooledBuffer = pooledBuffer;
+    hugeDocument = null;
+  }
+
+  // A replaced document may still be referenced by lazy elements, so only close() recycles its buffer
+  private void releaseDocument() {
+    VTDDocument doc = document;
+    if (doc != null) {
+      doc.release();
+    }
+    document = null;
+    pooledBuffer = null;
+  }
+
+  // Starts a batch of edits against the loaded document. Memory-mapped documents cannot be edited.
+  public DocumentEditor edit() {
+    if (hugeDocument != null) {
+      throw new VTDParserException("Editing is not supported for memory-mapped documents");
+    }
+    return new DocumentEditor(requireDocument());
+  }
+
+  // Re-parses the edited bytes in memory and makes them this parser's document, rebuilding the enabled
+  // indexes. Elements obtained before the swap refer to the old document and must not be reused.
+  public synchronized void applyEdits(DocumentEditor editor) {
+    if (editor.getDocument() != document) {
+      throw new VTDParserException("Editor was created for a different document");
+    }
+    long start = metrics.startTimer();
+    VTDNav vtdNav = editor.outputAndReparse();
+    try {
+      installDocument(vtdNav, vtdNav.getXML().length(), null, null, null, false, true, null);
+    } catch (NavException e) {
+      throw new VTDParserException("Failed to index edited document", e);
+    }
+    metrics.recordLoad(start, vtdNav.getXML().length());
+  }
+
+  private boolean writeIndexQuietly(IndexStore indexStore) {
+    try {
+      indexStore.writeIndex(vtdGen);
+      return true;
+    } catch (Exception e) {
+      // The document is still usable; it will simply be parsed again next time
+      System.err.println("Error writing VTD index: " + e.getMessage());
+      return false;
+    }
   }
 
   public List<Element> searchChildrenByAttribute(Element parentElement, String attributeName, String attributeValue) {
-    if (vtdNav == null || autoPilot == null || parentElement == null) {
+    long start = metrics.startTimer();
+    QueryTrace trace = QueryTrace.begin(slowQueryLog);
+    List<Element> results;
+    try {
+      results = findChildrenByAttribute(parentElement, attributeName, attributeValue);
+    } finally {
+      if (trace != null) {
+        trace.end();
+      }
+    }
+    metrics.recordEvaluation(start, results.size());
+    if (trace != null && trace.isSlow(slowQueryLog)) {
+      String parentXpath = parentElement != null ? parentElement.getXpath() : "";
+      trace.record(slowQueryLog, "searchChildrenByAttribute",
+          parentXpath + "/*[@" + attributeName + "='" + attributeValue + "']", results.size());
+    }
+    return results;
+  }
+
+  private List<Element> findChildrenByAttribute(Element parentElement, String attributeName, String attributeValue) {
+    if (hugeDocument != null && parentElement != null) {
+      return hugeDocument.getChildren(parentElement, null, attributeName, attributeValue);
+    }
+    VTDDocument doc = document;
+    if (doc == null || parentElement == null) {
       return Collections.emptyList();
     }
 
-    String parentElementXpath = parentElement.getXpath();
-    String xpathExpression = parentElementXpath + "/*[@" + attributeName + "='" + attributeValue + "']";
-    return searchByXPath(xpathExpression);
+    List<Element> results = new ArrayList<>();
+    VTDDocument.QueryCursor cursor = doc.acquireCursor();
+    try {
+      VTDNav vtdNav = cursor.nav;
+      if (!moveToElement(vtdNav, parentElement)) {
+        return results;
+      }
+      if (doc.getAttributeIndex() != null) {
+        return searchChildrenByAttributeIndex(doc, vtdNav, parentElement, attributeName, attributeValue);
+      }
+      // Walk the children directly from the parent's token instead of re-running an absolute XPath
+      Map<String, Integer> positions = new HashMap<>();
+      String parentXpath = parentElement.getXpath();
+      int visited = 0;
+      if (vtdNav.toElement(VTDNav.FIRST_CHILD)) {
+        do {
+          visited++;
+          int childIndex = vtdNav.getCurrentIndex();
+          String tagName = vtdNav.toString(childIndex);
+          int position = positions.merge(tagName, 1, Integer::sum);
+          int valueIndex = vtdNav.getAttrVal(attributeName);
+          if (valueIndex != -1 && vtdNav.compareTokenString(valueIndex, attributeValue) == 0) {
+            results.add(buildElement(doc, childIndex, tagName, position, parentXpath + "/" + tagName + "[" + position + "]"));
+          }
+        } while (vtdNav.toElement(VTDNav.NEXT_SIBLING));
+      }
+      QueryTrace.addNodesVisited(visited);
+    } catch (Exception e) {
+      System.err.println("Error in searchChildrenByAttribute: " + e.getMessage());
+    } finally {
+      doc.releaseCursor(cursor);
+    }
+    return results;
+  }
+
+  private List<Element> searchChildrenByAttributeIndex(VTDDocument doc, VTDNav vtdNav, Element parentElement,
+                                                       String attributeName, String attributeValue) throws NavException {
+    List<Element> results = new ArrayList<>();
+    int parentIndex = parentElement.getXpathIndex();
+    int childDepth = vtdNav.getTokenDepth(parentIndex) + 1;
+    // Candidates come from the index in document order; keep only the direct children of the parent
+    int[] candidates = doc.getAttributeIndex().lookup(AttributeIndex.ANY_TAG, attributeName, attributeValue);
+    QueryTrace.addNodesVisited(candidates.length);
+    for (int match : candidates) {
+      if (match > parentIndex && vtdNav.getTokenDepth(match) == childDepth && isChildOf(doc, vtdNav, match, parentIndex)) {
+        results.add(buildElement(doc, match));
+      }
+    }
+    return results;
+  }
+
+  private static boolean isChildOf(VTDDocument doc, VTDNav vtdNav, int elementIndex, int parentIndex) throws NavException {
+    if (doc.getPositionIndex() != null) {
+      return doc.getPositionIndex().getParent(elementIndex) == parentIndex;
+    }
+    vtdNav.recoverNode(elementIndex);
+    return vtdNav.toElement(VTDNav.PARENT) && vtdNav.getCurrentIndex() == parentIndex;
   }
 
   public Element searchByIndex(String tagName, int index) {
-    if (vtdNav == null || autoPilot == null) {
+    if (hugeDocument == null && document == null) {
       return null;
     }
     String xpathExpression = "//" + tagName + "[" + (index + 1) + "]"; // XPath is 1-based
-    List<Element> elements = searchByXPath(xpathExpression);
+    List<Element> elements = searchByXPath(xpathExpression, 1);
     return elements.isEmpty() ? null : elements.get(0);
   }
 
   public List<Element> searchByAttribute(String tagName, String attributeName, String attributeValue) {
-    if (vtdNav == null || autoPilot == null) {
+    long start = metrics.startTimer();
+    QueryTrace trace = QueryTrace.begin(slowQueryLog);
+    List<Element> results;
+    try {
+      results = findByAttribute(tagName, attributeName, attributeValue);
+    } finally {
+      if (trace != null) {
+        trace.end();
+      }
+    }
+    metrics.recordEvaluation(start, results.size());
+    if (trace != null && trace.isSlow(slowQueryLog)) {
+      trace.record(slowQueryLog, "searchByAttribute",
+          "//" + tagName + "[@" + attributeName + "='" + attributeValue + "']", results.size());
+    }
+    return results;
+  }
+
+  private List<Element> findByAttribute(String tagName, String attributeName, String attributeValue) {
+    if (hugeDocument != null) {
+      return hugeDocument.searchByAttribute(tagName, attributeName, attributeValue);
+    }
+    VTDDocument doc = document;
+    if (doc == null) {
       return Collections.emptyList();
     }
-    String xpathExpression = "//" + tagName + "[@" + attributeName + "='" + attributeValue + "']";
-    return searchByXPath(xpathExpression);
+    List<Element> results = new ArrayList<>();
+    if (doc.getAttributeIndex() != null) {
+      try {
+        int[] matches = doc.getAttributeIndex().lookup(tagName, attributeName, attributeValue);
+        QueryTrace.addNodesVisited(matches.length);
+        for (int match : matches) {
+          results.add(buildElement(doc, match));
+        }
+      } catch (Exception e) {
+        System.err.println("Error in searchByAttribute: " + e.getMessage());
+      }
+      return results;
+    }
+    ParallelXPath parallel = planParallel(doc, "//" + tagName + "[@" + attributeName + "]", attributeName, attributeValue);
+    if (parallel != null) {
+      try {
+        return buildElements(doc, parallel.matches());
+      } catch (Exception e) {
+        System.err.println("Error in searchByAttribute: " + e.getMessage());
+        return results;
+      }
+    }
+    // One compiled query per (tag, attribute) pair; the value is bound at evaluation time instead of
+    // being spliced into the expression, so distinct values share the cached AutoPilot
+    VTDDocument.QueryCursor cursor = doc.acquireCursor();
+    try {
+      VTDNav vtdNav = cursor.nav;
+      AutoPilot autoPilot = cursor.xpathCache.getAutoPilot("//" + tagName + "[@" + attributeName + "]");
+      int xpathIndex;
+      int visited = 0;
+      while ((xpathIndex = autoPilot.evalXPath()) != -1) {
+        visited++;
+        int valueIndex = vtdNav.getAttrVal(attributeName);
+        if (valueIndex != -1 && vtdNav.compareTokenString(valueIndex, attributeValue) == 0) {
+          results.add(buildElement(doc, xpathIndex));
+        }
+      }
+      QueryTrace.addNodesVisited(visited);
+    } catch (Exception e) {
+      System.err.println("Error in searchByAttribute: " + e.getMessage());
+    } finally {
+      doc.releaseCursor(cursor);
+    }
+    return results;
+  }
+
+  public CacheStatistics getXPathCacheStatistics() {
+    VTDDocument doc = document;
+    return doc != null ? doc.getCacheStatistics() : new CacheStatistics();
+  }
+
+  public PerformanceMetrics getPerformanceMetrics() {
+    return metrics;
+  }
+
+  public SlowQueryLog getSlowQueryLog() {
+    return slowQueryLog;
+  }
+
+  // Approximate heap held by the loaded document: the XML bytes (not counted when memory-mapped),
+  // 8 bytes of VTD record per token and the indexes
+  public long getMemoryFootprint() {
+    if (hugeDocument != null) {
+      return hugeDocument.getMemoryFootprint();
+    }
+    VTDDocument doc = document;
+    return doc != null ? doc.getMemoryFootprint() : 0;
+  }
+
+  public long getIndexMemoryFootprint() {
+    VTDDocument doc = document;
+    return doc != null ? doc.getIndexMemoryFootprint() : 0;
   }
 
   public List<Element> searchByXPath(String xpathExpression) {
+    return searchByXPath(xpathExpression, Integer.MAX_VALUE);
+  }
+
+  public List<Element> searchByXPath(String xpathExpression, int limit) {
+    if (limit == Integer.MAX_VALUE) {
+      List<Element> results = searchInParallel(xpathExpression);
+      if (results != null) {
+        return results;
+      }
+    }
     List<Element> results = new ArrayList<>();
+    forEachByXPath(xpathExpression, limit, results::add);
+    return results;
+  }
+
+  // Unbounded searches on a large document split across its top-level elements; null when the
+  // expression or the document calls for the sequential path
+  private List<Element> searchInParallel(String xpathExpression) {
+    VTDDocument doc = document;
+    ParallelXPath parallel = planParallel(doc, xpathExpression, null, null);
+    if (parallel == null) {
+      return null;
+    }
+    long start = metrics.startTimer();
+    QueryTrace trace = QueryTrace.begin(slowQueryLog);
+    List<Element> results = new ArrayList<>();
+    try {
+      results = buildElements(doc, parallel.matches());
+    } catch (Exception e) {
+      System.err.println("Error in searchByXPath: " + e.getMessage());
+    } finally {
+      if (trace != null) {
+        trace.end();
+      }
+    }
+    metrics.recordEvaluation(start, results.size());
+    if (trace != null && trace.isSlow(slowQueryLog)) {
+      trace.record(slowQueryLog, "searchByXPath", xpathExpression, results.size());
+    }
+    return results;
+  }
+
+  private ParallelXPath planParallel(VTDDocument doc, String xpath, String attributeName, String attributeValue) {
+    if (hugeDocument != null || doc == null) {
+      return null;
+    }
+    try {
+      return ParallelXPath.plan(doc, xpath, configuration.getParallelQueryThreshold(), attributeName, attributeValue);
+    } catch (NavException e) {
+      return null;
+    }
+  }
+
+  private List<Element> buildElements(VTDDocument doc, int[] matches) {
+    QueryTrace.addNodesVisited(matches.length);
+    List<Element> results = new ArrayList<>(matches.length);
+    for (int match : matches) {
+      results.add(buildElement(doc, match));
+    }
+    return results;
+  }
+
+  public int forEachByXPath(String xpathExpression, Predicate<Element> visitor) {
+    return forEachByXPath(xpathExpression, Integer.MAX_VALUE, visitor);
+  }
+
+  // Hands each match to the visitor as it is evaluated and stops once the visitor returns false or the
+  // limit is reached; only the current match is ever held. Returns the number of matches visited.
+  public int forEachByXPath(String xpathExpression, int limit, Predicate<Element> visitor) {
+    // The recorded evaluation time includes the visitor, which runs between evaluation steps
+    long start = metrics.startTimer();
+    QueryTrace trace = QueryTrace.begin(slowQueryLog);
+    int visited;
     try {
-      // Reset AutoPilot and set XPath expression to find elements with specific attribute value
-      autoPilot.resetXPath();
-      autoPilot.selectXPath(xpathExpression);
+      visited = visitByXPath(xpathExpression, limit, visitor);
+    } finally {
+      if (trace != null) {
+        trace.end();
+      }
+    }
+    metrics.recordEvaluation(start, visited);
+    if (trace != null && trace.isSlow(slowQueryLog)) {
+      trace.record(slowQueryLog, "searchByXPath", xpathExpression, visited);
+    }
+    return visited;
+  }
+
+  private int visitByXPath(String xpathExpression, int limit, Predicate<Element> visitor) {
+    if (hugeDocument != null) {
+      return hugeDocument.forEachByXPath(xpathExpression, limit, visitor);
+    }
+    VTDDocument doc = document;
+    if (doc == null || limit <= 0) {
+      return 0;
+    }
+    int visited = 0;
+    VTDDocument.QueryCursor cursor = doc.acquireCursor();
+    try {
+      // Compiled expressions are reused across calls; the cache hands them back reset
+      AutoPilot autoPilot = cursor.xpathCache.getAutoPilot(xpathExpression);
       int xpathIndex;
-      while ((xpathIndex = autoPilot.evalXPath()) != -1) {
-        vtdNav.push(); // Push current context to stack
-        String tagName = vtdNav.toString(xpathIndex);
-        // Get the text content of the element
-        String textContent = "";
-        int textIndex = vtdNav.getText();
-        if (textIndex != -1) {
-          textContent = vtdNav.toString(textIndex);
+      while (visited < limit && (xpathIndex = autoPilot.evalXPath()) != -1) {
+        visited++;
+        if (!visitor.test(buildElement(doc, xpathIndex))) {
+          break;
         }
+      }
+      QueryTrace.addNodesVisited(visited);
+    } catch (NavException | XPathEvalException | XPathParsingException e) {
+      // Log error but stop iterating instead of throwing; exceptions from the visitor propagate
+      System.err.println("Error in forEachByXPath: " + e.getMessage());
+    } finally {
+      doc.releaseCursor(cursor);
+    }
+    return visited;
+  }
 
-        // Get all attributes of the current element
-        Map<String, String> attributes = getCurrentElementAttrs(xpathIndex);
+  // Decodes only the named columns of each match: attributes by name, or the text for Projection.TEXT.
+  // No Element, xpath or position is built; Projection.getElement(row) gives one on demand.
+  public Projection select(String xpathExpression, String... columns) {
+    long start = metrics.startTimer();
+    QueryTrace trace = QueryTrace.begin(slowQueryLog);
+    Projection projection;
+    try {
+      projection = project(xpathExpression, columns);
+    } finally {
+      if (trace != null) {
+        trace.end();
+      }
+    }
+    metrics.recordEvaluation(start, projection.size());
+    if (trace != null && trace.isSlow(slowQueryLog)) {
+      trace.record(slowQueryLog, "select", xpathExpression, projection.size());
+    }
+    return projection;
+  }
 
-        // Create ElementResult with all attributes and index
-        Pair<Integer, String> elementInfo = getElementInfo(vtdNav);
-        Element elementResult = new Element(tagName, textContent, attributes, xpathIndex, elementInfo.first, elementInfo.second);
-        results.add(elementResult);
-        vtdNav.pop(); // Pop back to the parent element after processing child
+  private Projection project(String xpathExpression, String[] columns) {
+    if (hugeDocument != null) {
+      return hugeDocument.select(xpathExpression, columns);
+    }
+    ProjectionBuilder builder = new ProjectionBuilder(columns);
+    VTDDocument doc = document;
+    if (doc == null) {
+      return builder.build(null);
+    }
+    VTDDocument.QueryCursor cursor = doc.acquireCursor();
+    try {
+      VTDNav vtdNav = cursor.nav;
+      AutoPilot autoPilot = cursor.xpathCache.getAutoPilot(xpathExpression);
+      int xpathIndex;
+      while ((xpathIndex = autoPilot.evalXPath()) != -1) {
+        builder.addRow(xpathIndex);
+        for (int column = 0; column < builder.getColumnCount(); column++) {
+          int valueIndex = builder.isTextColumn(column) ? vtdNav.getText() : vtdNav.getAttrVal(builder.getColumn(column));
+          if (valueIndex != -1) {
+            builder.set(column, vtdNav.toString(valueIndex));
+          }
+        }
       }
+      QueryTrace.addNodesVisited(builder.size());
     } catch (Exception e) {
-      // Log error but return empty list instead of throwing
-      System.err.println("Error in searchByAttribute: " + e.getMessage());
+      System.err.println("Error in select: " + e.getMessage());
+    } finally {
+      doc.releaseCursor(cursor);
     }
+    return builder.build(doc.getElementSource());
+  }
+
+  public List<Element> query(ElementQuery query) {
+    List<Element> results = new ArrayList<>();
+    forEachMatch(query, results::add);
     return results;
   }
 
+  // Evaluates the query in one pass over the token buffer, comparing tag and attribute tokens in place.
+  // Returns the number of matches visited, stopping early like forEachByXPath.
+  public int forEachMatch(ElementQuery query, Predicate<Element> visitor) {
+    long start = metrics.startTimer();
+    QueryTrace trace = QueryTrace.begin(slowQueryLog);
+    int visited;
+    try {
+      if (hugeDocument != null) {
+        visited = hugeDocument.forEachMatch(query, visitor);
+      } else {
+        VTDDocument doc = document;
+        visited = doc == null ? 0 : scanQuery(doc, query, elementIndex -> visitor.test(buildElement(doc, elementIndex)));
+      }
+    } finally {
+      if (trace != null) {
+        trace.end();
+      }
+    }
+    metrics.recordEvaluation(start, visited);
+    if (trace != null && trace.isSlow(slowQueryLog)) {
+      trace.record(slowQueryLog, "query", query.toString(), visited);
+    }
+    return visited;
+  }
+
+  // Counts matches without creating any Element
+  public int countMatches(ElementQuery query) {
+    long start = metrics.startTimer();
+    QueryTrace trace = QueryTrace.begin(slowQueryLog);
+    int count;
+    try {
+      if (hugeDocument != null) {
+        count = hugeDocument.forEachMatch(query, element -> true);
+      } else {
+        VTDDocument doc = document;
+        count = doc == null ? 0 : scanQuery(doc, query, elementIndex -> true);
+      }
+    } finally {
+      if (trace != null) {
+        trace.end();
+      }
+    }
+    metrics.recordEvaluation(start, count);
+    if (trace != null && trace.isSlow(slowQueryLog)) {
+      trace.record(slowQueryLog, "countMatches", query.toString(), count);
+    }
+    return count;
+  }
+
+  // Evaluates all queries of the batch in one pass over the document and returns each query's match
+  // count in batch order. Costs about one scan plus the match work, however many queries there are.
+  public int[] evaluate(QueryBatch batch) {
+    long start = metrics.startTimer();
+    QueryTrace trace = QueryTrace.begin(slowQueryLog);
+    int[] counts;
+    try {
+      VTDDocument doc = document;
+      if (hugeDocument != null) {
+        // A mapped document has a single cursor, so its queries run one after another
+        counts = new int[batch.size()];
+        for (int q = 0; q < batch.size(); q++) {
+          Predicate<Element> collector = batch.getCollector(q);
+          counts[q] = hugeDocument.forEachMatch(batch.getQueries().get(q), collector != null ? collector : element -> true);
+        }
+      } else if (doc == null || batch.size() == 0) {
+        counts = new int[batch.size()];
+      } else {
+        counts = new QuerySweep(doc, batch).run();
+      }
+    } finally {
+      if (trace != null) {
+        trace.end();
+      }
+    }
+    int total = Arrays.stream(counts).sum();
+    metrics.recordEvaluation(start, total);
+    if (trace != null && trace.isSlow(slowQueryLog)) {
+      trace.record(slowQueryLog, "evaluate", "batch of " + batch.size() + " queries", total);
+    }
+    return counts;
+  }
+
+  private int scanQuery(VTDDocument doc, ElementQuery query, IntPredicate onMatch) {
+    if (query.getLimit() <= 0) {
+      return 0;
+    }
+    QueryMatcher matcher = new QueryMatcher(query);
+    int matched = 0;
+    int examined = 0;
+    VTDDocument.QueryCursor cursor = doc.acquireCursor();
+    try {
+      VTDNav vtdNav = cursor.nav;
+      int tokenCount = vtdNav.getTokenCount();
+      int startIndex = 0;
+      int scopeDepth = -1;
+      Element scope = query.getScope();
+      if (scope != null) {
+        if (!moveToElement(vtdNav, scope)) {
+          return 0;
+        }
+        startIndex = scope.getXpathIndex() + 1;
+        scopeDepth = vtdNav.getTokenDepth(scope.getXpathIndex());
+      }
+      for (int i = startIndex; i < tokenCount; i++) {
+        int tokenType = vtdNav.getTokenType(i);
+        if (scopeDepth >= 0 && leavesScope(vtdNav, i, tokenType, scopeDepth)) {
+          break;
+        }
+        if (tokenType != VTDNav.TOKEN_STARTING_TAG) {
+          continue;
+        }
+        examined++;
+        if (matcher.matches(vtdNav, i, tokenCount)) {
+          matched++;
+          if (!onMatch.test(i) || matched >= query.getLimit()) {
+            break;
+          }
+        }
+      }
+    } catch (NavException e) {
+      // Exceptions from onMatch, which runs the caller's visitor, propagate
+      System.err.println("Error in query: " + e.getMessage());
+    } finally {
+      doc.releaseCursor(cursor);
+    }
+    QueryTrace.addNodesVisited(examined);
+    return matched;
+  }
+
+  // The scope ends at the next element at or above its depth, or at text belonging to an ancestor
+  static boolean leavesScope(VTDNav vtdNav, int tokenIndex, int tokenType, int scopeDepth) {
+    int depth = vtdNav.getTokenDepth(tokenIndex);
+    return depth < scopeDepth || (tokenType == VTDNav.TOKEN_STARTING_TAG && depth <= scopeDepth);
+  }
+
+  // Lazily evaluated stream of matches; close it (or consume it fully) to hand the cursor back early
+  public Stream<Element> streamByXPath(String xpathExpression) {
+    if (hugeDocument != null) {
+      return hugeDocument.searchByXPath(xpathExpression).stream();
+    }
+    VTDDocument doc = document;
+    if (doc == null) {
+      return Stream.empty();
+    }
+    XPathSpliterator spliterator = new XPathSpliterator(doc, xpathExpression);
+    return StreamSupport.stream(spliterator, false).onClose(spliterator::release);
+  }
+
+  private static final class XPathSpliterator extends Spliterators.AbstractSpliterator<Element> {
+    private final VTDDocument document;
+    private final String xpathExpression;
+    private VTDDocument.QueryCursor cursor;
+    private AutoPilot autoPilot;
+    private boolean exhausted;
+
+    XPathSpliterator(VTDDocument document, String xpathExpression) {
+      super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.IMMUTABLE);
+      this.document = document;
+      this.xpathExpression = xpathExpression;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super Element> action) {
+      if (exhausted) {
+        return false;
+      }
+      try {
+        if (cursor == null) {
+          cursor = document.acquireCursor();
+          autoPilot = cursor.xpathCache.getAutoPilot(xpathExpression);
+        }
+        int xpathIndex = autoPilot.evalXPath();
+        if (xpathIndex == -1) {
+          release();
+          return false;
+        }
+        document.getMetrics().recordMatches(1);
+        action.accept(buildElement(document, xpathIndex));
+        return true;
+      } catch (VTDParserException e) {
+        release();
+        throw e;
+      } catch (Exception e) {
+        release();
+        throw new VTDParserException("Error evaluating XPath expression: " + xpathExpression, e);
+      }
+    }
+
+    void release() {
+      exhausted = true;
+      if (cursor != null) {
+        document.releaseCursor(cursor);
+        cursor = null;
+        autoPilot = null;
+      }
+    }
+  }
+
+  private static Element buildElement(VTDDocument doc, int elementIndex) {
+    // Nothing is decoded here; the element resolves its data through the source when asked
+    return new Element(doc.getElementSource(), elementIndex);
+  }
+
+  private static Element buildElement(VTDDocument doc, int elementIndex, String tagName, int position, String xpath) {
+    return new Element(doc.getElementSource(), elementIndex, tagName, position, xpath);
+  }
+
+  private static boolean moveToElement(VTDNav vtdNav, Element element) throws NavException {
+    int elementIndex = element.getXpathIndex();
+    if (elementIndex < 0 || elementIndex >= vtdNav.getTokenCount()
+        || vtdNav.getTokenType(elementIndex) != VTDNav.TOKEN_STARTING_TAG) {
+      return false;
+    }
+    vtdNav.recoverNode(elementIndex);
+    return true;
+  }
+
   record Pair<F, S>(F first, S second) {
     public F getFirst() {
       return first;
@@ -177,65 +997,340 @@ public class VTDXMLParser implements AutoCloseable {
   }
 
   public int getElementCountByXPath(String xpath) {
-    if (vtdNav == null || autoPilot == null) {
+    long start = metrics.startTimer();
+    QueryTrace trace = QueryTrace.begin(slowQueryLog);
+    int count;
+    try {
+      count = countByXPath(xpath);
+    } finally {
+      if (trace != null) {
+        trace.end();
+      }
+    }
+    metrics.recordEvaluation(start, count);
+    if (trace != null && trace.isSlow(slowQueryLog)) {
+      trace.record(slowQueryLog, "getElementCountByXPath", xpath, count);
+    }
+    return count;
+  }
+
+  private int countByXPath(String xpath) {
+    if (hugeDocument != null) {
+      return hugeDocument.getElementCountByXPath(xpath);
+    }
+    VTDDocument doc = document;
+    if (doc == null) {
       return 0;
     }
+    ParallelXPath parallel = planParallel(doc, xpath, null, null);
+    if (parallel != null) {
+      try {
+        int count = parallel.count();
+        QueryTrace.addNodesVisited(count);
+        return count;
+      } catch (Exception e) {
+        System.err.println("Error in getElementCountByXPath: " + e.getMessage());
+        return 0;
+      }
+    }
 
     int count = 0;
 
+    VTDDocument.QueryCursor cursor = doc.acquireCursor();
     try {
-      // Reset AutoPilot and set the XPath expression
-      autoPilot.resetXPath();
-      autoPilot.selectXPath(xpath);
+      AutoPilot autoPilot = cursor.xpathCache.getAutoPilot(xpath);
 
       // Count all matching nodes
       while (autoPilot.evalXPath() != -1) {
         count++;
       }
+      QueryTrace.addNodesVisited(count);
 
     } catch (Exception e) {
       // Log error but return 0 instead of throwing
       System.err.println("Error in getElementCountByXPath: " + e.getMessage());
       return 0;
+    } finally {
+      doc.releaseCursor(cursor);
     }
 
     return count;
   }
 
   public List<Element> getChildren(Element parentElement) {
-    if (vtdNav == null || autoPilot == null || parentElement == null) {
+    return getChildren(parentElement, null);
+  }
+
+  public List<Element> getChildren(Element parentElement, String tagName) {
+    long start = metrics.startTimer();
+    QueryTrace trace = QueryTrace.begin(slowQueryLog);
+    List<Element> results;
+    try {
+      results = findChildren(parentElement, tagName);
+    } finally {
+      if (trace != null) {
+        trace.end();
+      }
+    }
+    metrics.recordEvaluation(start, results.size());
+    if (trace != null && trace.isSlow(slowQueryLog)) {
+      String parentXpath = parentElement != null ? parentElement.getXpath() : "";
+      trace.record(slowQueryLog, "getChildren", parentXpath + "/" + (tagName != null ? tagName : "*"), results.size());
+    }
+    return results;
+  }
+
+  private List<Element> findChildren(Element parentElement, String tagName) {
+    if (hugeDocument != null && parentElement != null) {
+      return hugeDocument.getChildren(parentElement, tagName, null, null);
+    }
+    VTDDocument doc = document;
+    if (doc == null || parentElement == null) {
       return Collections.emptyList();
     }
-    String parentElementXpath = parentElement.getXpath();
-    String xpathExpression = parentElementXpath + "/*";
-    return searchByXPath(xpathExpression);
+
+    List<Element> results = new ArrayList<>();
+    VTDDocument.QueryCursor cursor = doc.acquireCursor();
+    try {
+      VTDNav vtdNav = cursor.nav;
+      if (!moveToElement(vtdNav, parentElement)) {
+        return results;
+      }
+      // Positions are counted per tag name while walking, so each child costs O(1)
+      Map<String, Integer> positions = new HashMap<>();
+      String parentXpath = parentElement.getXpath();
+      int visited = 0;
+      if (vtdNav.toElement(VTDNav.FIRST_CHILD)) {
+        do {
+          visited++;
+          int childIndex = vtdNav.getCurrentIndex();
+          String childName = vtdNav.toString(childIndex);
+          int position = positions.merge(childName, 1, Integer::sum);
+          if (tagName == null || tagName.equals(childName)) {
+            results.add(buildElement(doc, childIndex, childName, position, parentXpath + "/" + childName + "[" + position + "]"));
+          }
+        } while (vtdNav.toElement(VTDNav.NEXT_SIBLING));
+      }
+      QueryTrace.addNodesVisited(visited);
+    } catch (Exception e) {
+      System.err.println("Error in getChildren: " + e.getMessage());
+    } finally {
+      doc.releaseCursor(cursor);
+    }
+    return results;
+  }
+
+  public Element getParent(Element element) {
+    return navigateFrom(element, VTDNav.PARENT);
+  }
+
+  public Element getNextSibling(Element element) {
+    return navigateFrom(element, VTDNav.NEXT_SIBLING);
+  }
+
+  public Element getPreviousSibling(Element element) {
+    return navigateFrom(element, VTDNav.PREV_SIBLING);
+  }
+
+  private Element navigateFrom(Element element, int direction) {
+    if (hugeDocument != null && element != null) {
+      return hugeDocument.navigateFrom(element, direction);
+    }
+    VTDDocument doc = document;
+    if (doc == null || element == null) {
+      return null;
+    }
+    VTDDocument.QueryCursor cursor = doc.acquireCursor();
+    try {
+      VTDNav vtdNav = cursor.nav;
+      if (moveToElement(vtdNav, element) && vtdNav.toElement(direction)) {
+        return buildElement(doc, vtdNav.getCurrentIndex());
+      }
+    } catch (Exception e) {
+      System.err.println("Error in navigateFrom: " + e.getMessage());
+    } finally {
+      doc.releaseCursor(cursor);
+    }
+    return null;
   }
 
-  private Map<String, String> getCurrentElementAttrs(int elemIndex) throws NavException {
+  private static Map<String, String> getCurrentElementAttrs(VTDNav vn, int elemIndex) throws NavException {
     // Get attributes of the child element
     Map<String, String> attributes = new HashMap<>();
-    int attrCount = vtdNav.getAttrCount();
+    int attrCount = vn.getAttrCount();
 
     for (int i = 0; i < attrCount * 2; ) {
-      String attrName = vtdNav.toString(elemIndex + i + 1);
-      String attrValue = vtdNav.toString(elemIndex + i + 2);
+      String attrName = vn.toString(elemIndex + i + 1);
+      String attrValue = vn.toString(elemIndex + i + 2);
       attributes.put(attrName, attrValue);
       i += 2; // Attribute name and value are consecutive
     }
     return attributes;
   }
 
+  // Decodes lazy elements on a borrowed cursor so that materialization never disturbs a running query
+  // and elements can be read from any thread
+  static final class NavElementSource implements ElementSource {
+    private final VTDDocument document;
+    private final PositionIndex positionIndex;
+    private final PerformanceMetrics metrics;
+
+    NavElementSource(VTDDocument document) {
+      this.document = document;
+      this.positionIndex = document.getPositionIndex();
+      this.metrics = document.getMetrics();
+    }
+
+    @Override
+    public String getTagName(int xpathIndex) {
+      if (positionIndex != null && positionIndex.contains(xpathIndex)) {
+        return positionIndex.getTagName(xpathIndex);
+      }
+      long start = metrics.startTimer();
+      long traceStart = QueryTrace.startMaterialization();
+      VTDDocument.QueryCursor cursor = document.acquireCursor();
+      try {
+        return cursor.nav.toString(xpathIndex);
+      } catch (NavException e) {
+        throw new VTDParserException("Failed to decode tag name at token " + xpathIndex, e);
+      } finally {
+        document.releaseCursor(cursor);
+        metrics.recordMaterialization(start);
+        QueryTrace.endMaterialization(traceStart);
+      }
+    }
+
+    @Override
+    public String getTextContent(int xpathIndex) {
+      long start = metrics.startTimer();
+      long traceStart = QueryTrace.startMaterialization();
+      VTDDocument.QueryCursor cursor = document.acquireCursor();
+      try {
+        VTDNav nav = cursor.nav;
+        nav.recoverNode(xpathIndex);
+        int textIndex = nav.getText();
+        return textIndex != -1 ? nav.toString(textIndex) : "";
+      } catch (NavException e) {
+        throw new VTDParserException("Failed to decode text content at token " + xpathIndex, e);
+      } finally {
+        document.releaseCursor(cursor);
+        metrics.recordMaterialization(start);
+        QueryTrace.endMaterialization(traceStart);
+      }
+    }
+
+    @Override
+    public Map<String, String> getAttributes(int xpathIndex) {
+      long start = metrics.startTimer();
+      long traceStart = QueryTrace.startMaterialization();
+      VTDDocument.QueryCursor cursor = document.acquireCursor();
+      try {
+        cursor.nav.recoverNode(xpathIndex);
+        return getCurrentElementAttrs(cursor.nav, xpathIndex);
+      } catch (NavException e) {
+        throw new VTDParserException("Failed to decode attributes at token " + xpathIndex, e);
+      } finally {
+        document.releaseCursor(cursor);
+        metrics.recordMaterialization(start);
+        QueryTrace.endMaterialization(traceStart);
+      }
+    }
+
+    @Override
+    public String getAttribute(int xpathIndex, String attributeName) {
+      long start = metrics.startTimer();
+      long traceStart = QueryTrace.startMaterialization();
+      VTDDocument.QueryCursor cursor = document.acquireCursor();
+      try {
+        VTDNav nav = cursor.nav;
+        nav.recoverNode(xpathIndex);
+        int valueIndex = nav.getAttrVal(attributeName);
+        return valueIndex != -1 ? nav.toString(valueIndex) : null;
+      } catch (NavException e) {
+        throw new VTDParserException("Failed to decode attribute " + attributeName + " at token " + xpathIndex, e);
+      } finally {
+        document.releaseCursor(cursor);
+        metrics.recordMaterialization(start);
+        QueryTrace.endMaterialization(traceStart);
+      }
+    }
+
+    @Override
+    public int getElementIndex(int xpathIndex) {
+      if (positionIndex != null && positionIndex.contains(xpathIndex)) {
+        return positionIndex.getPosition(xpathIndex);
+      }
+      long start = metrics.startTimer();
+      long traceStart = QueryTrace.startMaterialization();
+      VTDDocument.QueryCursor cursor = document.acquireCursor();
+      try {
+        cursor.nav.recoverNode(xpathIndex);
+        return getCurrentElementPosition(cursor.nav);
+      } catch (NavException e) {
+        throw new VTDParserException("Failed to resolve position at token " + xpathIndex, e);
+      } finally {
+        document.releaseCursor(cursor);
+        metrics.recordMaterialization(start);
+        QueryTrace.endMaterialization(traceStart);
+      }
+    }
+
+    @Override
+    public String getXpath(int xpathIndex) {
+      if (positionIndex != null && positionIndex.contains(xpathIndex)) {
+        return positionIndex.getXpath(xpathIndex);
+      }
+      long start = metrics.startTimer();
+      long traceStart = QueryTrace.startMaterialization();
+      VTDDocument.QueryCursor cursor = document.acquireCursor();
+      try {
+        cursor.nav.recoverNode(xpathIndex);
+        return getElementInfo(cursor.nav).second;
+      } catch (NavException e) {
+        throw new VTDParserException("Failed to resolve xpath at token " + xpathIndex, e);
+      } finally {
+        document.releaseCursor(cursor);
+        metrics.recordMaterialization(start);
+        QueryTrace.endMaterialization(traceStart);
+      }
+    }
+  }
+
   public String getValueByXPath(String xpath) {
+    long start = metrics.startTimer();
+    QueryTrace trace = QueryTrace.begin(slowQueryLog);
+    String value;
+    try {
+      value = findValueByXPath(xpath);
+    } finally {
+      if (trace != null) {
+        trace.end();
+      }
+    }
+    metrics.recordEvaluation(start, value != null ? 1 : 0);
+    if (trace != null && trace.isSlow(slowQueryLog)) {
+      trace.record(slowQueryLog, "getValueByXPath", xpath, value != null ? 1 : 0);
+    }
+    return value;
+  }
+
+  private String findValueByXPath(String xpath) {
     // Implementation for retrieving text value by XPath expression
-    if (vtdNav == null || autoPilot == null) {
+    if (hugeDocument != null) {
+      return hugeDocument.getValueByXPath(xpath);
+    }
+    VTDDocument doc = document;
+    if (doc == null) {
       return null;
     }
 
+    VTDDocument.QueryCursor cursor = doc.acquireCursor();
     try {
-      autoPilot.resetXPath();
-      autoPilot.selectXPath(xpath);
+      VTDNav vtdNav = cursor.nav;
+      AutoPilot autoPilot = cursor.xpathCache.getAutoPilot(xpath);
       int xpathIndex = autoPilot.evalXPath();
       if (xpathIndex != -1) {
+        QueryTrace.addNodesVisited(1);
         int textIndex = vtdNav.getText();
         if (textIndex != -1) {
           return vtdNav.toString(textIndex);
@@ -244,24 +1339,287 @@ public class VTDXMLParser implements AutoCloseable {
     } catch (Exception e) {
       // Log error but return null instead of throwing
       System.err.println("Error in getValueByXPath: " + e.getMessage());
+    } finally {
+      doc.releaseCursor(cursor);
     }
     return null;
   }
 
+  // Zero-copy view of an attribute value in the document buffer; null when the attribute is absent.
+  // Memory-mapped documents have no heap buffer to point into and always return null.
+  public TokenValue getAttributeValue(Element element, String attributeName) {
+    VTDDocument doc = document;
+    if (doc == null || hugeDocument != null) {
+      return null;
+    }
+    VTDDocument.QueryCursor cursor = doc.acquireCursor();
+    try {
+      VTDNav vtdNav = cursor.nav;
+      vtdNav.recoverNode(element.getXpathIndex());
+      int valueIndex = vtdNav.getAttrVal(attributeName);
+      return valueIndex != -1 ? tokenValue(doc, vtdNav, valueIndex) : null;
+    } catch (NavException e) {
+      System.err.println("Error in getAttributeValue: " + e.getMessage());
+      return null;
+    } finally {
+      doc.releaseCursor(cursor);
+    }
+  }
+
+  // Zero-copy view of the element's text; null when it has none or the document is memory-mapped
+  public TokenValue getTextValue(Element element) {
+    VTDDocument doc = document;
+    if (doc == null || hugeDocument != null) {
+      return null;
+    }
+    VTDDocument.QueryCursor cursor = doc.acquireCursor();
+    try {
+      VTDNav vtdNav = cursor.nav;
+      vtdNav.recoverNode(element.getXpathIndex());
+      int textIndex = vtdNav.getText();
+      return textIndex != -1 ? tokenValue(doc, vtdNav, textIndex) : null;
+    } catch (NavException e) {
+      System.err.println("Error in getTextValue: " + e.getMessage());
+      return null;
+    } finally {
+      doc.releaseCursor(cursor);
+    }
+  }
+
+  // Compares against the raw token without decoding it into a String
+  public boolean attributeEquals(Element element, String attributeName, CharSequence expected) {
+    VTDDocument doc = document;
+    if (doc == null || hugeDocument != null) {
+      return expected.toString().equals(element.getAttribute(attributeName));
+    }
+    VTDDocument.QueryCursor cursor = doc.acquireCursor();
+    try {
+      VTDNav vtdNav = cursor.nav;
+      vtdNav.recoverNode(element.getXpathIndex());
+      int valueIndex = vtdNav.getAttrVal(attributeName);
+      return valueIndex != -1 && tokenEquals(doc, vtdNav, valueIndex, expected);
+    } catch (NavException e) {
+      System.err.println("Error in attributeEquals: " + e.getMessage());
+      return false;
+    } finally {
+      doc.releaseCursor(cursor);
+    }
+  }
+
+  public boolean textEquals(Element element, CharSequence expected) {
+    VTDDocument doc = document;
+    if (doc == null || hugeDocument != null) {
+      return expected.toString().equals(element.getTextContent());
+    }
+    VTDDocument.QueryCursor cursor = doc.acquireCursor();
+    try {
+      VTDNav vtdNav = cursor.nav;
+      vtdNav.recoverNode(element.getXpathIndex());
+      int textIndex = vtdNav.getText();
+      // Matches getTextContent(), which reports a missing text node as ""
+      return textIndex != -1 ? tokenEquals(doc, vtdNav, textIndex, expected) : expected.length() == 0;
+    } catch (NavException e) {
+      System.err.println("Error in textEquals: " + e.getMessage());
+      return false;
+    } finally {
+      doc.releaseCursor(cursor);
+    }
+  }
+
+  // Original bytes of the element's subtree, start tag through end tag, in the document's own encoding.
+  // The buffer is a read-only view of the loaded document (a mapping of the file for memory-mapped
+  // documents), never a copy. Null when the element cannot be located.
+  public ByteBuffer extractFragment(Element element) {
+    return extractFragments(Collections.singletonList(element)).get(0);
+  }
+
+  // One view per element, in the given order; entries are null for elements that cannot be located
+  public List<ByteBuffer> extractFragments(Collection<? extends Element> elements) {
+    List<ByteBuffer> fragments = new ArrayList<>(elements.size());
+    HugeDocument huge = hugeDocument;
+    if (huge != null) {
+      // Mappings stay valid after the channel is closed
+      try (FileChannel file = FileChannel.open(huge.getPath(), StandardOpenOption.READ)) {
+        for (Element element : elements) {
+          long[] range = huge.getFragmentRange(element);
+          fragments.add(range != null ? file.map(FileChannel.MapMode.READ_ONLY, range[0], range[1]) : null);
+        }
+      } catch (IOException e) {
+        System.err.println("Error in extractFragments: " + e.getMessage());
+        return unlocated(elements);
+      }
+      return fragments;
+    }
+    VTDDocument doc = document;
+    if (doc == null) {
+      return unlocated(elements);
+    }
+    byte[] bytes = doc.getDocumentBytes();
+    for (long fragment : fragmentRanges(doc, elements)) {
+      fragments.add(fragment != -1L
+          ? ByteBuffer.wrap(bytes, fragmentOffset(fragment), fragmentLength(fragment)).slice().asReadOnlyBuffer()
+          : null);
+    }
+    return fragments;
+  }
+
+  // A null entry per element, for when none of them can be located
+  private static List<ByteBuffer> unlocated(Collection<? extends Element> elements) {
+    return new ArrayList<>(Collections.nCopies(elements.size(), (ByteBuffer) null));
+  }
+
+  // Copies the element's original bytes to the stream without re-serializing; returns the bytes written
+  public long writeFragment(Element element, OutputStream out) throws IOException {
+    return writeFragments(Collections.singletonList(element), out);
+  }
+
+  public long writeFragment(Element element, WritableByteChannel channel) throws IOException {
+    return writeFragments(Collections.singletonList(element), channel);
+  }
+
+  // Writes the fragments back to back in the given order. Every element must be locatable: a partial
+  // export would be silently corrupt, so an unknown element fails the call before anything is written.
+  public long writeFragments(Collection<? extends Element> elements, OutputStream out) throws IOException {
+    if (hugeDocument != null) {
+      return writeFragments(elements, Channels.newChannel(out));
+    }
+    VTDDocument doc = requireDocument();
+    byte[] bytes = doc.getDocumentBytes();
+    long written = 0;
+    for (long fragment : requireFragmentRanges(doc, elements)) {
+      out.write(bytes, fragmentOffset(fragment), fragmentLength(fragment));
+      written += fragmentLength(fragment);
+    }
+    return written;
+  }
+
+  public long writeFragments(Collection<? extends Element> elements, WritableByteChannel channel) throws IOException {
+    HugeDocument huge = hugeDocument;
+    if (huge != null) {
+      List<long[]> ranges = new ArrayList<>(elements.size());
+      for (Element element : elements) {
+        long[] range = huge.getFragmentRange(element);
+        if (range == null) {
+          throw new VTDParserException("Element not found in the loaded document: " + element.getXpath());
+        }
+        ranges.add(range);
+      }
+      long written = 0;
+      // transferTo lets the kernel copy straight from the page cache where the target allows it
+      try (FileChannel file = FileChannel.open(huge.getPath(), StandardOpenOption.READ)) {
+        for (long[] range : ranges) {
+          long position = range[0];
+          long end = range[0] + range[1];
+          while (position < end) {
+            position += file.transferTo(position, end - position, channel);
+          }
+          written += range[1];
+        }
+      }
+      return written;
+    }
+    VTDDocument doc = requireDocument();
+    byte[] bytes = doc.getDocumentBytes();
+    long written = 0;
+    for (long fragment : requireFragmentRanges(doc, elements)) {
+      ByteBuffer buffer = ByteBuffer.wrap(bytes, fragmentOffset(fragment), fragmentLength(fragment));
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+      written += fragmentLength(fragment);
+    }
+    return written;
+  }
+
+  private VTDDocument requireDocument() {
+    VTDDocument doc = document;
+    if (doc == null) {
+      throw new VTDParserException("No document loaded");
+    }
+    return doc;
+  }
+
+  // Fragments packed the way VTDNav.getElementFragment returns them: length in the high 32 bits and
+  // byte offset in the low 32 bits; -1 for elements that cannot be located. One cursor serves the batch.
+  private static long[] fragmentRanges(VTDDocument doc, Collection<? extends Element> elements) {
+    long[] fragments = new long[elements.size()];
+    VTDDocument.QueryCursor cursor = doc.acquireCursor();
+    try {
+      int i = 0;
+      for (Element element : elements) {
+        try {
+          cursor.nav.recoverNode(element.getXpathIndex());
+          fragments[i] = cursor.nav.getElementFragment();
+        } catch (NavException e) {
+          fragments[i] = -1L;
+        }
+        i++;
+      }
+    } finally {
+      doc.releaseCursor(cursor);
+    }
+    return fragments;
+  }
+
+  private static long[] requireFragmentRanges(VTDDocument doc, Collection<? extends Element> elements) {
+    long[] fragments = fragmentRanges(doc, elements);
+    int i = 0;
+    for (Element element : elements) {
+      if (fragments[i++] == -1L) {
+        throw new VTDParserException("Element not found in the loaded document: " + element.getXpath());
+      }
+    }
+    return fragments;
+  }
+
+  private static int fragmentOffset(long fragment) {
+    return (int) fragment;
+  }
+
+  private static int fragmentLength(long fragment) {
+    return (int) (fragment >>> 32);
+  }
+
+  private static TokenValue tokenValue(VTDDocument doc, VTDNav vtdNav, int tokenIndex) {
+    int shift = doc.getByteShift();
+    return new TokenValue(doc.getDocumentBytes(), vtdNav.getTokenOffset(tokenIndex) << shift,
+        vtdNav.getTokenLength(tokenIndex) << shift, doc.getCharset());
+  }
+
+  private static boolean tokenEquals(VTDDocument doc, VTDNav vtdNav, int tokenIndex, CharSequence expected)
+      throws NavException {
+    if (expected instanceof String) {
+      // VTD-XML walks the raw bytes and resolves entities as it goes
+      return vtdNav.matchTokenString(tokenIndex, (String) expected);
+    }
+    return tokenValue(doc, vtdNav, tokenIndex).contentEquals(expected);
+  }
+
   public boolean existsElement(String xpath) {
-    // Implementation for checking if an element exists for the given XPath
-    return getElementCountByXPath(xpath) > 0;
+    // Implementation for checking if an element exists for the given XPath; stops at the first match
+    return forEachByXPath(xpath, 1, element -> false) > 0;
   }
 
   @Override
-  public void close() {
-    // Proper resource cleanup
-    // Temporarily disabled until VTD-XML dependency is resolved
-    // if (vtdGen != null) {
-    //     vtdGen.close();
-    // }
+  public synchronized void close() {
+    // Drops the document so its byte buffer and VTD records can be collected even while the parser
+    // object itself is still referenced. Pooled stream buffers and reuse-mode parser buffers are
+    // recycled here, so elements and token views from this parser must not be used after close().
+    metrics.unregisterMBean();
+    byte[] buffer = pooledBuffer;
+    releaseDocument();
+    if (buffer != null) {
+      BufferPool.shared().release(buffer);
+    }
+    if (parserBuffers != null) {
+      parserBuffers.release();
+      parserBuffers = null;
+    }
+    hugeDocument = null;
+    vtdGen = null;
   }
 
+
   public void parse(String filePath) {
     try {
       loadDocument(filePath);
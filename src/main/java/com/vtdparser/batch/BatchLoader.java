@@ -0,0 +1,95 @@
+package com.vtdparser.batch;
+
+import com.vtdparser.VTDXMLParser;
+import com.vtdparser.config.ParserConfiguration;
+import com.vtdparser.exception.BatchLoadException;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Parses many XML files in parallel on an executor while keeping the bytes being parsed under a budget.
+// Each file gets its own handle; a failing file completes its handle exceptionally and the rest go on.
+public class BatchLoader implements AutoCloseable {
+    private final ParserConfiguration configuration;
+    private final ExecutorService executor;
+    private final boolean ownsExecutor;
+    private final ByteBudget budget;
+
+    public BatchLoader(ParserConfiguration configuration, long maxInFlightBytes) {
+        this(configuration, Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors()), maxInFlightBytes, true);
+    }
+
+    // Any executor works, e.g. a ForkJoinPool or a virtual-thread-per-task executor on newer JDKs
+    public BatchLoader(ParserConfiguration configuration, ExecutorService executor, long maxInFlightBytes) {
+        this(configuration, executor, maxInFlightBytes, false);
+    }
+
+    private BatchLoader(ParserConfiguration configuration, ExecutorService executor, long maxInFlightBytes, boolean ownsExecutor) {
+        this.configuration = configuration;
+        this.executor = executor;
+        this.ownsExecutor = ownsExecutor;
+        this.budget = new ByteBudget(maxInFlightBytes);
+    }
+
+    public List<DocumentLoad> loadAll(Collection<String> xmlFilePaths) {
+        List<DocumentLoad> loads = new ArrayList<>(xmlFilePaths.size());
+        for (String xmlFilePath : xmlFilePaths) {
+            loads.add(load(xmlFilePath));
+        }
+        return loads;
+    }
+
+    public DocumentLoad load(String xmlFilePath) {
+        CompletableFuture<VTDXMLParser> future = CompletableFuture.supplyAsync(() -> loadAdmitted(xmlFilePath), executor);
+        return new DocumentLoad(xmlFilePath, future);
+    }
+
+    public static BatchResult awaitAll(List<DocumentLoad> loads) throws InterruptedException {
+        List<DocumentLoad> loaded = new ArrayList<>();
+        List<DocumentLoad> failed = new ArrayList<>();
+        for (DocumentLoad load : loads) {
+            if (load.getFailure() == null) {
+                loaded.add(load);
+            } else {
+                failed.add(load);
+            }
+        }
+        return new BatchResult(loaded, failed);
+    }
+
+    public long getInFlightBytes() {
+        return budget.getInFlight();
+    }
+
+    private VTDXMLParser loadAdmitted(String xmlFilePath) {
+        long granted;
+        try {
+            granted = budget.acquire(new File(xmlFilePath).length());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BatchLoadException(xmlFilePath, e);
+        }
+        VTDXMLParser parser = new VTDXMLParser(configuration);
+        try {
+            parser.loadDocument(xmlFilePath);
+            return parser;
+        } catch (Exception e) {
+            parser.close();
+            throw new BatchLoadException(xmlFilePath, e);
+        } finally {
+            budget.release(granted);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (ownsExecutor) {
+            executor.shutdown();
+        }
+    }
+}
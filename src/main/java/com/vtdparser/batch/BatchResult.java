@@ -0,0 +1,34 @@
+package com.vtdparser.batch;
+
+import java.util.Collections;
+import java.util.List;
+
+public class BatchResult {
+    private final List<DocumentLoad> loaded;
+    private final List<DocumentLoad> failed;
+
+    BatchResult(List<DocumentLoad> loaded, List<DocumentLoad> failed) {
+        this.loaded = Collections.unmodifiableList(loaded);
+        this.failed = Collections.unmodifiableList(failed);
+    }
+
+    public List<DocumentLoad> getLoaded() {
+        return loaded;
+    }
+
+    public List<DocumentLoad> getFailed() {
+        return failed;
+    }
+
+    public boolean hasFailures() {
+        return !failed.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "BatchResult{" +
+                "loaded=" + loaded.size() +
+                ", failed=" + failed.size() +
+                '}';
+    }
+}
@@ -0,0 +1,58 @@
+package com.vtdparser.batch;
+
+import java.util.concurrent.ForkJoinPool;
+
+// Caps the number of document bytes being parsed at once. A document larger than the whole budget
+// is admitted on its own once everything else has drained, so it can never deadlock the batch.
+final class ByteBudget {
+    private final long capacity;
+    private long inFlight;
+
+    ByteBudget(long capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Byte budget must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+    }
+
+    long acquire(long bytes) throws InterruptedException {
+        long request = Math.max(0, Math.min(bytes, capacity));
+        // managedBlock lets a fork-join pool compensate for workers parked on the budget
+        ForkJoinPool.managedBlock(new ForkJoinPool.ManagedBlocker() {
+            @Override
+            public boolean block() throws InterruptedException {
+                synchronized (ByteBudget.this) {
+                    while (!tryTake(request)) {
+                        ByteBudget.this.wait();
+                    }
+                }
+                return true;
+            }
+
+            @Override
+            public boolean isReleasable() {
+                synchronized (ByteBudget.this) {
+                    return tryTake(request);
+                }
+            }
+        });
+        return request;
+    }
+
+    synchronized void release(long granted) {
+        inFlight -= granted;
+        notifyAll();
+    }
+
+    synchronized long getInFlight() {
+        return inFlight;
+    }
+
+    private boolean tryTake(long request) {
+        if (inFlight == 0 || inFlight + request <= capacity) {
+            inFlight += request;
+            return true;
+        }
+        return false;
+    }
+}
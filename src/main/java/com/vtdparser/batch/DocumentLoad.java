@@ -0,0 +1,60 @@
+package com.vtdparser.batch;
+
+import com.vtdparser.VTDXMLParser;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+// Handle on one file of a batch; completes with the loaded parser or with the reason it failed
+public class DocumentLoad {
+    private final String path;
+    private final CompletableFuture<VTDXMLParser> future;
+
+    DocumentLoad(String path, CompletableFuture<VTDXMLParser> future) {
+        this.path = path;
+        this.future = future;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public CompletableFuture<VTDXMLParser> getFuture() {
+        return future;
+    }
+
+    public boolean isDone() {
+        return future.isDone();
+    }
+
+    public boolean isFailed() {
+        return future.isCompletedExceptionally();
+    }
+
+    // Waits for the load and returns the parser, or null when this file failed
+    public VTDXMLParser getParser() throws InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            return null;
+        }
+    }
+
+    public Throwable getFailure() throws InterruptedException {
+        try {
+            future.get();
+            return null;
+        } catch (ExecutionException e) {
+            return e.getCause();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "DocumentLoad{" +
+                "path='" + path + '\'' +
+                ", done=" + isDone() +
+                ", failed=" + isFailed() +
+                '}';
+    }
+}
@@ -1,6 +1,7 @@
 package com.vtdparser.builder;
 
 import com.vtdparser.VTDXMLParser;
+import com.vtdparser.config.AttributeIndexMode;
 import com.vtdparser.config.ParserConfiguration;
 
 public class VTDParserBuilder {
@@ -25,6 +26,76 @@ public class VTDParserBuilder {
         return this;
     }
 
+    public VTDParserBuilder setPositionIndexEnabled(boolean positionIndexEnabled) {
+        this.configuration.setPositionIndexEnabled(positionIndexEnabled);
+        return this;
+    }
+
+    public VTDParserBuilder setAttributeIndexMode(AttributeIndexMode attributeIndexMode) {
+        this.configuration.setAttributeIndexMode(attributeIndexMode);
+        return this;
+    }
+
+    public VTDParserBuilder addIndexedAttribute(String tagName, String attributeName) {
+        this.configuration.addIndexedAttribute(tagName, attributeName);
+        return this;
+    }
+
+    public VTDParserBuilder setXpathCacheSize(int xpathCacheSize) {
+        this.configuration.setXpathCacheSize(xpathCacheSize);
+        return this;
+    }
+
+    public VTDParserBuilder setMemoryMapped(boolean memoryMapped) {
+        this.configuration.setMemoryMapped(memoryMapped);
+        return this;
+    }
+
+    public VTDParserBuilder setPersistentIndexEnabled(boolean persistentIndexEnabled) {
+        this.configuration.setPersistentIndexEnabled(persistentIndexEnabled);
+        return this;
+    }
+
+    public VTDParserBuilder setIndexDirectory(String indexDirectory) {
+        this.configuration.setIndexDirectory(indexDirectory);
+        return this;
+    }
+
+    public VTDParserBuilder setIndexChecksumEnabled(boolean indexChecksumEnabled) {
+        this.configuration.setIndexChecksumEnabled(indexChecksumEnabled);
+        return this;
+    }
+
+    public VTDParserBuilder setMetricsEnabled(boolean metricsEnabled) {
+        this.configuration.setMetricsEnabled(metricsEnabled);
+        return this;
+    }
+
+    public VTDParserBuilder setMetricsMBeanName(String metricsMBeanName) {
+        this.configuration.setMetricsMBeanName(metricsMBeanName);
+        return this;
+    }
+
+    public VTDParserBuilder setSlowQueryThresholdMillis(long slowQueryThresholdMillis) {
+        this.configuration.setSlowQueryThresholdMillis(slowQueryThresholdMillis);
+        return this;
+    }
+
+    public VTDParserBuilder setSlowQueryLogSize(int slowQueryLogSize) {
+        this.configuration.setSlowQueryLogSize(slowQueryLogSize);
+        return this;
+    }
+
+    public VTDParserBuilder setParserReuseEnabled(boolean parserReuseEnabled) {
+        this.configuration.setParserReuseEnabled(parserReuseEnabled);
+        return this;
+    }
+
+    public VTDParserBuilder setParallelQueryThreshold(int parallelQueryThreshold) {
+        this.configuration.setParallelQueryThreshold(parallelQueryThreshold);
+        return this;
+    }
+
     public VTDXMLParser build() {
         return new VTDXMLParser(configuration);
     }
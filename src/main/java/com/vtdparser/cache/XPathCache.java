@@ -1,37 +1,100 @@
 package com.vtdparser.cache;
 
 import com.vtdparser.exception.XPathParsingException;
+import com.vtdparser.util.PerformanceMetrics;
+import com.ximpleware.AutoPilot;
+import com.ximpleware.VTDNav;
+import com.ximpleware.XPathParseException;
 
-import javax.xml.xpath.XPathExpression;
-import javax.xml.xpath.XPathFactory;
-import javax.xml.xpath.XPathExpressionException;
+import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
+// Bounded LRU of compiled AutoPilots bound to one VTDNav, so repeated expressions skip XPath parsing.
+// A cache belongs to a single cursor and is not thread-safe; only its statistics may be shared.
 public class XPathCache {
-    private final Map<String, XPathExpression> cache;
+    private final VTDNav nav;
+    private final int maxSize;
+    private final Map<String, AutoPilot> cache;
+    private final CacheStatistics statistics;
+    private final PerformanceMetrics metrics;
 
-    public XPathCache() {
-        this.cache = new ConcurrentHashMap<>();
+    public XPathCache(VTDNav nav, int maxSize) {
+        this(nav, maxSize, new CacheStatistics());
     }
 
-    public XPathExpression getXPath(String expression) {
-        return cache.computeIfAbsent(expression, this::compileXPath);
+    public XPathCache(VTDNav nav, int maxSize, CacheStatistics statistics) {
+        this(nav, maxSize, statistics, null);
     }
 
-    private XPathExpression compileXPath(String expression) {
+    // Compile times and hit/miss counts are also reported to metrics when it is not null
+    public XPathCache(VTDNav nav, int maxSize, CacheStatistics statistics, PerformanceMetrics metrics) {
+        this.nav = nav;
+        this.maxSize = maxSize;
+        this.statistics = statistics;
+        this.metrics = metrics;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, AutoPilot> eldest) {
+                if (size() > XPathCache.this.maxSize) {
+                    XPathCache.this.statistics.recordEviction();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    // Returns a compiled AutoPilot positioned at the start of the expression
+    public AutoPilot getAutoPilot(String expression) {
+        AutoPilot autoPilot = cache.get(expression);
+        if (autoPilot != null) {
+            statistics.recordHit();
+            if (metrics != null) {
+                metrics.recordCacheHit();
+            }
+            autoPilot.resetXPath();
+            return autoPilot;
+        }
+        statistics.recordMiss();
+        if (metrics != null) {
+            metrics.recordCacheMiss();
+        }
+        autoPilot = compileXPath(expression);
+        if (maxSize > 0) {
+            statistics.recordInsert();
+            cache.put(expression, autoPilot);
+        }
+        return autoPilot;
+    }
+
+    private AutoPilot compileXPath(String expression) {
+        long start = metrics != null ? metrics.startTimer() : 0L;
+        AutoPilot autoPilot = new AutoPilot(nav);
         try {
-            return XPathFactory.newInstance().newXPath().compile(expression);
-        } catch (XPathExpressionException e) {
+            autoPilot.selectXPath(expression);
+        } catch (XPathParseException e) {
             throw new XPathParsingException("Failed to compile XPath expression: " + expression, e);
         }
+        if (metrics != null) {
+            metrics.recordCompile(start);
+        }
+        return autoPilot;
     }
 
     public void clearCache() {
+        statistics.recordRemoval(cache.size());
         cache.clear();
     }
 
     public int getCacheSize() {
         return cache.size();
     }
-}
\ No newline at end of file
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public CacheStatistics getStatistics() {
+        return statistics;
+    }
+}
@@ -0,0 +1,10 @@
+package com.vtdparser.config;
+
+public enum AttributeIndexMode {
+    // Every attribute lookup scans the document
+    DISABLED,
+    // A (tag, attribute) pair is indexed the first time it is queried
+    LAZY,
+    // Configured (tag, attribute) pairs are indexed in one pass at load time, others lazily
+    EAGER
+}
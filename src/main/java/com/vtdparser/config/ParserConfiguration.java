@@ -1,15 +1,66 @@
 package com.vtdparser.config;
 
+import java.util.LinkedHashSet;
+import java.util.Set;
+
 public class ParserConfiguration {
     private int bufferSize;
     private String encoding;
     private boolean namespaceAware;
+    private boolean positionIndexEnabled;
+    private AttributeIndexMode attributeIndexMode;
+    private Set<String> indexedAttributes;
+    private int xpathCacheSize;
+    private boolean memoryMapped;
+    private boolean persistentIndexEnabled;
+    private String indexDirectory;
+    private boolean indexChecksumEnabled;
+    private boolean metricsEnabled;
+    private String metricsMBeanName;
+    private long slowQueryThresholdMillis;
+    private int slowQueryLogSize;
+    private boolean parserReuseEnabled;
+    private int parallelQueryThreshold;
 
     public ParserConfiguration() {
         // Default values
-        this.bufferSize = 8192; // Default buffer size
+        this.bufferSize = 8192; // Initial read buffer for documents loaded from a stream
         this.encoding = "UTF-8"; // Default encoding
         this.namespaceAware = false; // Default namespace awareness
+        this.positionIndexEnabled = false; // Positions are resolved by navigation unless indexed
+        this.attributeIndexMode = AttributeIndexMode.DISABLED; // Attribute lookups scan unless indexed
+        this.indexedAttributes = new LinkedHashSet<>(); // "tag@attribute" pairs indexed eagerly
+        this.xpathCacheSize = 100; // Default number of compiled XPath expressions kept per document
+        this.memoryMapped = false; // Documents are read into the heap unless mapped
+        this.persistentIndexEnabled = false; // Documents are tokenized on every load
+        this.indexDirectory = null; // Index files are written next to the XML file
+        this.indexChecksumEnabled = false; // Freshness is checked by size and modification time only
+        this.metricsEnabled = true; // Latency histograms and counters are recorded
+        this.metricsMBeanName = null; // Metrics are not registered with JMX unless named
+        this.slowQueryThresholdMillis = -1; // Slow queries are not recorded unless a threshold is set
+        this.slowQueryLogSize = 100; // Default number of recent slow queries kept
+        this.parserReuseEnabled = false; // Each load gets a fresh VTDGen unless reuse is enabled
+        this.parallelQueryThreshold = -1; // Queries run on one thread unless a token threshold is set
+    }
+
+    public ParserConfiguration(ParserConfiguration other) {
+        this.bufferSize = other.bufferSize;
+        this.encoding = other.encoding;
+        this.namespaceAware = other.namespaceAware;
+        this.positionIndexEnabled = other.positionIndexEnabled;
+        this.attributeIndexMode = other.attributeIndexMode;
+        this.indexedAttributes = new LinkedHashSet<>(other.indexedAttributes);
+        this.xpathCacheSize = other.xpathCacheSize;
+        this.memoryMapped = other.memoryMapped;
+        this.persistentIndexEnabled = other.persistentIndexEnabled;
+        this.indexDirectory = other.indexDirectory;
+        this.indexChecksumEnabled = other.indexChecksumEnabled;
+        this.metricsEnabled = other.metricsEnabled;
+        this.metricsMBeanName = other.metricsMBeanName;
+        this.slowQueryThresholdMillis = other.slowQueryThresholdMillis;
+        this.slowQueryLogSize = other.slowQueryLogSize;
+        this.parserReuseEnabled = other.parserReuseEnabled;
+        this.parallelQueryThreshold = other.parallelQueryThreshold;
     }
 
     public int getBufferSize() {
@@ -35,4 +86,120 @@ public class ParserConfiguration {
     public void setNamespaceAware(boolean namespaceAware) {
         this.namespaceAware = namespaceAware;
     }
+
+    public boolean isPositionIndexEnabled() {
+        return positionIndexEnabled;
+    }
+
+    public void setPositionIndexEnabled(boolean positionIndexEnabled) {
+        this.positionIndexEnabled = positionIndexEnabled;
+    }
+
+    public AttributeIndexMode getAttributeIndexMode() {
+        return attributeIndexMode;
+    }
+
+    public void setAttributeIndexMode(AttributeIndexMode attributeIndexMode) {
+        this.attributeIndexMode = attributeIndexMode;
+    }
+
+    public Set<String> getIndexedAttributes() {
+        return indexedAttributes;
+    }
+
+    public void setIndexedAttributes(Set<String> indexedAttributes) {
+        this.indexedAttributes = new LinkedHashSet<>(indexedAttributes);
+    }
+
+    public void addIndexedAttribute(String tagName, String attributeName) {
+        this.indexedAttributes.add(tagName + "@" + attributeName);
+    }
+
+    public int getXpathCacheSize() {
+        return xpathCacheSize;
+    }
+
+    public void setXpathCacheSize(int xpathCacheSize) {
+        this.xpathCacheSize = xpathCacheSize;
+    }
+
+    public boolean isMemoryMapped() {
+        return memoryMapped;
+    }
+
+    public void setMemoryMapped(boolean memoryMapped) {
+        this.memoryMapped = memoryMapped;
+    }
+
+    public boolean isPersistentIndexEnabled() {
+        return persistentIndexEnabled;
+    }
+
+    public void setPersistentIndexEnabled(boolean persistentIndexEnabled) {
+        this.persistentIndexEnabled = persistentIndexEnabled;
+    }
+
+    public String getIndexDirectory() {
+        return indexDirectory;
+    }
+
+    public void setIndexDirectory(String indexDirectory) {
+        this.indexDirectory = indexDirectory;
+    }
+
+    public boolean isIndexChecksumEnabled() {
+        return indexChecksumEnabled;
+    }
+
+    public void setIndexChecksumEnabled(boolean indexChecksumEnabled) {
+        this.indexChecksumEnabled = indexChecksumEnabled;
+    }
+
+    public boolean isMetricsEnabled() {
+        return metricsEnabled;
+    }
+
+    public void setMetricsEnabled(boolean metricsEnabled) {
+        this.metricsEnabled = metricsEnabled;
+    }
+
+    public String getMetricsMBeanName() {
+        return metricsMBeanName;
+    }
+
+    public void setMetricsMBeanName(String metricsMBeanName) {
+        this.metricsMBeanName = metricsMBeanName;
+    }
+
+    public long getSlowQueryThresholdMillis() {
+        return slowQueryThresholdMillis;
+    }
+
+    public void setSlowQueryThresholdMillis(long slowQueryThresholdMillis) {
+        this.slowQueryThresholdMillis = slowQueryThresholdMillis;
+    }
+
+    public int getSlowQueryLogSize() {
+        return slowQueryLogSize;
+    }
+
+    public void setSlowQueryLogSize(int slowQueryLogSize) {
+        this.slowQueryLogSize = slowQueryLogSize;
+    }
+
+    public boolean isParserReuseEnabled() {
+        return parserReuseEnabled;
+    }
+
+    public void setParserReuseEnabled(boolean parserReuseEnabled) {
+        this.parserReuseEnabled = parserReuseEnabled;
+    }
+
+    public int getParallelQueryThreshold() {
+        return parallelQueryThreshold;
+    }
+
+    public void setParallelQueryThreshold(int parallelQueryThreshold) {
+        this.parallelQueryThreshold = parallelQueryThreshold;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,16 @@
+package com.vtdparser.exception;
+
+public class BatchLoadException extends VTDParserException {
+    private static final long serialVersionUID = 1L;
+
+    private final String path;
+
+    public BatchLoadException(String path, Throwable cause) {
+        super("Failed to load XML file: " + path, cause);
+        this.path = path;
+    }
+
+    public String getPath() {
+        return path;
+    }
+}
@@ -0,0 +1,197 @@
+package com.vtdparser.index;
+
+import com.ximpleware.NavException;
+import com.ximpleware.VTDNav;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Inverted index (tag, attribute name, attribute value) -> element tokens in document order
+public class AttributeIndex {
+    public static final String ANY_TAG = "*";
+    private static final int[] NO_MATCHES = new int[0];
+
+    private final VTDNav nav;
+    private final Map<String, Map<String, int[]>> postingsByKey = new ConcurrentHashMap<>();
+
+    public AttributeIndex(VTDNav nav) {
+        this.nav = nav;
+    }
+
+    // Keys use the "tag@attribute" form, with "*" as the tag to index every element
+    public synchronized void buildAll(Collection<String> keys) throws NavException {
+        List<String> tagNames = new ArrayList<>();
+        List<String> attributeNames = new ArrayList<>();
+        for (String key : keys) {
+            int separator = key.indexOf('@');
+            if (separator <= 0 || separator == key.length() - 1) {
+                throw new IllegalArgumentException("Indexed attribute must be of the form tag@attribute: " + key);
+            }
+            String tagName = key.substring(0, separator);
+            String attributeName = key.substring(separator + 1);
+            if (!isIndexed(tagName, attributeName) && !contains(tagNames, attributeNames, tagName, attributeName)) {
+                tagNames.add(tagName);
+                attributeNames.add(attributeName);
+            }
+        }
+        if (!tagNames.isEmpty()) {
+            scan(tagNames.toArray(new String[0]), attributeNames.toArray(new String[0]));
+        }
+    }
+
+    public int[] lookup(String tagName, String attributeName, String attributeValue) throws NavException {
+        Map<String, int[]> postings = postingsByKey.get(key(tagName, attributeName));
+        if (postings == null) {
+            postings = buildLazily(tagName, attributeName);
+        }
+        int[] matches = postings.get(attributeValue);
+        return matches != null ? matches : NO_MATCHES;
+    }
+
+    public boolean isIndexed(String tagName, String attributeName) {
+        return postingsByKey.containsKey(key(tagName, attributeName));
+    }
+
+    public int getIndexedKeyCount() {
+        return postingsByKey.size();
+    }
+
+    public long getMemoryFootprint() {
+        long bytes = 0;
+        for (Map.Entry<String, Map<String, int[]>> entry : postingsByKey.entrySet()) {
+            bytes += 64 + 2L * entry.getKey().length();
+            for (Map.Entry<String, int[]> posting : entry.getValue().entrySet()) {
+                // map node + value string + postings array
+                bytes += 48 + 40 + 2L * posting.getKey().length() + 16 + (long) Integer.BYTES * posting.getValue().length;
+            }
+        }
+        return bytes;
+    }
+
+    public synchronized void writeTo(DataOutputStream out) throws IOException {
+        out.writeInt(postingsByKey.size());
+        for (Map.Entry<String, Map<String, int[]>> entry : postingsByKey.entrySet()) {
+            out.writeUTF(entry.getKey());
+            out.writeInt(entry.getValue().size());
+            for (Map.Entry<String, int[]> posting : entry.getValue().entrySet()) {
+                out.writeUTF(posting.getKey());
+                out.writeInt(posting.getValue().length);
+                for (int tokenIndex : posting.getValue()) {
+                    out.writeInt(tokenIndex);
+                }
+            }
+        }
+    }
+
+    public static AttributeIndex readFrom(DataInputStream in, VTDNav nav) throws IOException {
+        AttributeIndex index = new AttributeIndex(nav);
+        int keyCount = in.readInt();
+        for (int k = 0; k < keyCount; k++) {
+            String key = in.readUTF();
+            int valueCount = in.readInt();
+            Map<String, int[]> postings = new HashMap<>(valueCount * 4 / 3 + 1);
+            for (int v = 0; v < valueCount; v++) {
+                String value = in.readUTF();
+                int[] matches = new int[in.readInt()];
+                for (int i = 0; i < matches.length; i++) {
+                    matches[i] = in.readInt();
+                }
+                postings.put(value, matches);
+            }
+            index.postingsByKey.put(key, postings);
+        }
+        return index;
+    }
+
+    private synchronized Map<String, int[]> buildLazily(String tagName, String attributeName) throws NavException {
+        Map<String, int[]> postings = postingsByKey.get(key(tagName, attributeName));
+        if (postings == null) {
+            scan(new String[]{tagName}, new String[]{attributeName});
+            postings = postingsByKey.get(key(tagName, attributeName));
+        }
+        return postings;
+    }
+
+    // One sequential pass over the token buffer collects postings for every requested key
+    private void scan(String[] tagNames, String[] attributeNames) throws NavException {
+        List<Map<String, Postings>> building = new ArrayList<>(tagNames.length);
+        for (int k = 0; k < tagNames.length; k++) {
+            building.add(new HashMap<>());
+        }
+
+        int tokenCount = nav.getTokenCount();
+        for (int i = 0; i < tokenCount; i++) {
+            if (nav.getTokenType(i) != VTDNav.TOKEN_STARTING_TAG) {
+                continue;
+            }
+            for (int k = 0; k < tagNames.length; k++) {
+                if (!ANY_TAG.equals(tagNames[k]) && !nav.matchTokenString(i, tagNames[k])) {
+                    continue;
+                }
+                int valueIndex = findAttributeValue(i, attributeNames[k], tokenCount);
+                if (valueIndex != -1) {
+                    building.get(k).computeIfAbsent(nav.toString(valueIndex), v -> new Postings()).add(i);
+                }
+            }
+        }
+
+        for (int k = 0; k < tagNames.length; k++) {
+            Map<String, int[]> postings = new HashMap<>(building.get(k).size() * 4 / 3 + 1);
+            for (Map.Entry<String, Postings> entry : building.get(k).entrySet()) {
+                postings.put(entry.getKey(), entry.getValue().toArray());
+            }
+            postingsByKey.put(key(tagNames[k], attributeNames[k]), postings);
+        }
+    }
+
+    private int findAttributeValue(int elementIndex, String attributeName, int tokenCount) throws NavException {
+        // Attribute name/value tokens directly follow the starting tag token
+        for (int j = elementIndex + 1; j + 1 < tokenCount; j += 2) {
+            int type = nav.getTokenType(j);
+            if (type != VTDNav.TOKEN_ATTR_NAME && type != VTDNav.TOKEN_ATTR_NS) {
+                break;
+            }
+            if (type == VTDNav.TOKEN_ATTR_NAME && nav.matchTokenString(j, attributeName)) {
+                return j + 1;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean contains(List<String> tagNames, List<String> attributeNames, String tagName, String attributeName) {
+        for (int k = 0; k < tagNames.size(); k++) {
+            if (tagNames.get(k).equals(tagName) && attributeNames.get(k).equals(attributeName)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String key(String tagName, String attributeName) {
+        return tagName + '@' + attributeName;
+    }
+
+    private static final class Postings {
+        private int[] items = new int[4];
+        private int size;
+
+        void add(int tokenIndex) {
+            if (size == items.length) {
+                items = Arrays.copyOf(items, size * 2);
+            }
+            items[size++] = tokenIndex;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(items, size);
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package com.vtdparser.index;
+
+import com.ximpleware.VTDGen;
+import com.ximpleware.VTDNav;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Objects;
+import java.util.zip.CRC32;
+
+// Persists the VTD index of a document next to it (<name>.vtdx) together with a metadata sidecar
+// (<name>.vtdx.meta) holding freshness data and the library's own position/attribute indexes.
+// The sidecar is written last, so an index without one is never trusted. Freshness data is taken
+// before the document is read and checked again before the sidecar is written, so a document that
+// changes during the parse never gets metadata describing bytes that were not the ones indexed.
+public class IndexStore {
+    private static final int MAGIC = 0x56544458; // "VTDX"
+    private static final int VERSION = 1;
+    private static final long NO_CHECKSUM = -1L;
+
+    private final File xmlFile;
+    private final File indexFile;
+    private final File metadataFile;
+    private final boolean checksumEnabled;
+
+    public IndexStore(String xmlFilePath, String indexDirectory, boolean checksumEnabled) {
+        this.xmlFile = new File(xmlFilePath);
+        File directory = indexDirectory != null ? new File(indexDirectory) : xmlFile.getAbsoluteFile().getParentFile();
+        this.indexFile = new File(directory, xmlFile.getName() + ".vtdx");
+        this.metadataFile = new File(directory, xmlFile.getName() + ".vtdx.meta");
+        this.checksumEnabled = checksumEnabled;
+    }
+
+    public File getIndexFile() {
+        return indexFile;
+    }
+
+    public File getMetadataFile() {
+        return metadataFile;
+    }
+
+    // Size, modification time and, when enabled, checksum of the document as it is now
+    public Fingerprint fingerprint() throws IOException {
+        return new Fingerprint(xmlFile.length(), xmlFile.lastModified(), checksumEnabled ? checksum(xmlFile) : NO_CHECKSUM);
+    }
+
+    // Returns the stored document and indexes, or null when the index is missing, unreadable or does not
+    // match the fingerprint of the document about to be used
+    public Snapshot load(VTDGen vtdGen, Fingerprint source) {
+        if (!indexFile.isFile() || !metadataFile.isFile()) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(metadataFile)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return null;
+            }
+            long xmlSize = in.readLong();
+            long xmlLastModified = in.readLong();
+            long checksum = in.readLong();
+            long indexSize = in.readLong();
+            if (xmlSize != source.size || xmlLastModified != source.lastModified || indexSize != indexFile.length()) {
+                return null;
+            }
+            if (checksumEnabled && (checksum == NO_CHECKSUM || checksum != source.checksum)) {
+                return null;
+            }
+
+            VTDNav nav = vtdGen.loadIndex(indexFile.getPath());
+            PositionIndex positionIndex = in.readBoolean() ? PositionIndex.readFrom(in) : null;
+            AttributeIndex attributeIndex = in.readBoolean() ? AttributeIndex.readFrom(in, nav.cloneNav()) : null;
+            return new Snapshot(nav, positionIndex, attributeIndex);
+        } catch (Exception e) {
+            System.err.println("Ignoring unreadable VTD index " + indexFile + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    // Must run after parsing and before VTDGen.getNav(), which clears the generator's buffers
+    public void writeIndex(VTDGen vtdGen) throws Exception {
+        Files.deleteIfExists(metadataFile.toPath());
+        File tempFile = new File(indexFile.getPath() + ".tmp");
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(tempFile))) {
+            vtdGen.writeIndex(out);
+        }
+        Files.move(tempFile.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    // Writes nothing when the document no longer matches the fingerprint taken before it was read; the
+    // index then has no sidecar and the next load parses the document again
+    public void writeMetadata(Fingerprint source, PositionIndex positionIndex, AttributeIndex attributeIndex)
+            throws IOException {
+        if (!source.equals(fingerprint())) {
+            return;
+        }
+        File tempFile = new File(metadataFile.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(source.size);
+            out.writeLong(source.lastModified);
+            out.writeLong(source.checksum);
+            out.writeLong(indexFile.length());
+            out.writeBoolean(positionIndex != null);
+            if (positionIndex != null) {
+                positionIndex.writeTo(out);
+            }
+            out.writeBoolean(attributeIndex != null);
+            if (attributeIndex != null) {
+                attributeIndex.writeTo(out);
+            }
+        }
+        Files.move(tempFile.toPath(), metadataFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static long checksum(File file) throws IOException {
+        CRC32 crc = new CRC32();
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = new FileInputStream(file)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                crc.update(buffer, 0, read);
+            }
+        }
+        return crc.getValue();
+    }
+
+    public static final class Fingerprint {
+        private final long size;
+        private final long lastModified;
+        private final long checksum;
+
+        Fingerprint(long size, long lastModified, long checksum) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.checksum = checksum;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Fingerprint)) {
+                return false;
+            }
+            Fingerprint other = (Fingerprint) o;
+            return size == other.size && lastModified == other.lastModified && checksum == other.checksum;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(size, lastModified, checksum);
+        }
+    }
+
+    public static final class Snapshot {
+        private final VTDNav nav;
+        private final PositionIndex positionIndex;
+        private final AttributeIndex attributeIndex;
+
+        Snapshot(VTDNav nav, PositionIndex positionIndex, AttributeIndex attributeIndex) {
+            this.nav = nav;
+            this.positionIndex = positionIndex;
+            this.attributeIndex = attributeIndex;
+        }
+
+        public VTDNav getNav() {
+            return nav;
+        }
+
+        public PositionIndex getPositionIndex() {
+            return positionIndex;
+        }
+
+        public AttributeIndex getAttributeIndex() {
+            return attributeIndex;
+        }
+    }
+}
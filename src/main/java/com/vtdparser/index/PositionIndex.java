@@ -0,0 +1,155 @@
+package com.vtdparser.index;
+
+import com.ximpleware.NavException;
+import com.ximpleware.VTDNav;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Per-token parent, tag name and same-name sibling ordinal, built in a single pass over the VTD records
+public class PositionIndex {
+    private static final int NO_PARENT = -1;
+
+    private final int[] parents;
+    private final int[] positions;
+    private final int[] nameIds;
+    private final String[] names;
+
+    private PositionIndex(int[] parents, int[] positions, int[] nameIds, String[] names) {
+        this.parents = parents;
+        this.positions = positions;
+        this.nameIds = nameIds;
+        this.names = names;
+    }
+
+    public static PositionIndex build(VTDNav nav) throws NavException {
+        int tokenCount = nav.getTokenCount();
+        int[] parents = new int[tokenCount];
+        int[] positions = new int[tokenCount];
+        int[] nameIds = new int[tokenCount];
+        Arrays.fill(parents, NO_PARENT);
+
+        Map<String, Integer> nameTable = new HashMap<>();
+        List<String> names = new ArrayList<>();
+        int[] openElements = new int[16];
+        // counts[depth][nameId] is only valid while stamps[depth][nameId] holds the current parent token
+        int[][] counts = new int[16][];
+        int[][] stamps = new int[16][];
+
+        for (int i = 0; i < tokenCount; i++) {
+            if (nav.getTokenType(i) != VTDNav.TOKEN_STARTING_TAG) {
+                continue;
+            }
+            int depth = nav.getTokenDepth(i);
+            if (depth >= openElements.length) {
+                int newLength = Math.max(depth + 1, openElements.length * 2);
+                openElements = Arrays.copyOf(openElements, newLength);
+                counts = Arrays.copyOf(counts, newLength);
+                stamps = Arrays.copyOf(stamps, newLength);
+            }
+            openElements[depth] = i;
+            int parent = depth > 0 ? openElements[depth - 1] : NO_PARENT;
+
+            String name = nav.toString(i);
+            Integer nameId = nameTable.get(name);
+            if (nameId == null) {
+                nameId = names.size();
+                nameTable.put(name, nameId);
+                names.add(name);
+            }
+
+            if (counts[depth] == null || counts[depth].length <= nameId) {
+                int newLength = Math.max(nameId + 1, names.size() * 2);
+                counts[depth] = counts[depth] == null ? new int[newLength] : Arrays.copyOf(counts[depth], newLength);
+                int oldLength = stamps[depth] == null ? 0 : stamps[depth].length;
+                stamps[depth] = stamps[depth] == null ? new int[newLength] : Arrays.copyOf(stamps[depth], newLength);
+                Arrays.fill(stamps[depth], oldLength, newLength, Integer.MIN_VALUE);
+            }
+            if (stamps[depth][nameId] != parent) {
+                stamps[depth][nameId] = parent;
+                counts[depth][nameId] = 0;
+            }
+
+            parents[i] = parent;
+            positions[i] = ++counts[depth][nameId];
+            nameIds[i] = nameId;
+        }
+        return new PositionIndex(parents, positions, nameIds, names.toArray(new String[0]));
+    }
+
+    public boolean contains(int tokenIndex) {
+        return tokenIndex >= 0 && tokenIndex < positions.length && positions[tokenIndex] > 0;
+    }
+
+    public int getParent(int tokenIndex) {
+        return parents[tokenIndex];
+    }
+
+    public int getPosition(int tokenIndex) {
+        return positions[tokenIndex];
+    }
+
+    public String getTagName(int tokenIndex) {
+        return names[nameIds[tokenIndex]];
+    }
+
+    public String getXpath(int tokenIndex) {
+        int depth = 0;
+        for (int i = tokenIndex; i != NO_PARENT; i = parents[i]) {
+            depth++;
+        }
+        int[] path = new int[depth];
+        for (int i = tokenIndex; i != NO_PARENT; i = parents[i]) {
+            path[--depth] = i;
+        }
+        StringBuilder xpath = new StringBuilder();
+        for (int step : path) {
+            xpath.append('/').append(names[nameIds[step]]).append('[').append(positions[step]).append(']');
+        }
+        return xpath.toString();
+    }
+
+    public long getMemoryFootprint() {
+        long bytes = 3L * Integer.BYTES * positions.length;
+        for (String name : names) {
+            bytes += 40 + 2L * name.length();
+        }
+        return bytes;
+    }
+
+    public void writeTo(DataOutputStream out) throws IOException {
+        out.writeInt(names.length);
+        for (String name : names) {
+            out.writeUTF(name);
+        }
+        out.writeInt(positions.length);
+        for (int i = 0; i < positions.length; i++) {
+            out.writeInt(parents[i]);
+            out.writeInt(positions[i]);
+            out.writeInt(nameIds[i]);
+        }
+    }
+
+    public static PositionIndex readFrom(DataInputStream in) throws IOException {
+        String[] names = new String[in.readInt()];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = in.readUTF();
+        }
+        int tokenCount = in.readInt();
+        int[] parents = new int[tokenCount];
+        int[] positions = new int[tokenCount];
+        int[] nameIds = new int[tokenCount];
+        for (int i = 0; i < tokenCount; i++) {
+            parents[i] = in.readInt();
+            positions[i] = in.readInt();
+            nameIds[i] = in.readInt();
+        }
+        return new PositionIndex(parents, positions, nameIds, names);
+    }
+}
@@ -1,9 +1,13 @@
 package com.vtdparser.model;
 
+import java.util.Collections;
 import java.util.Map;
 import java.util.HashMap;
 
 public class Element {
+    private static final int UNRESOLVED = -1;
+
+    private final ElementSource source;
     private String tagName;
     private String textContent;
     private Map<String, String> attributes;
@@ -12,26 +16,46 @@ public class Element {
     private String xpath;
 
     public Element(String tagName, String textContent, Map<String, String> attributes, int xpathIndex, int elementIndex, String xpath) {
+        this.source = null;
         this.tagName = tagName;
         this.textContent = textContent;
-        this.attributes = attributes != null ? new HashMap<>(attributes) : new HashMap<>();
+        this.attributes = attributes != null ? Collections.unmodifiableMap(new HashMap<>(attributes)) : Collections.emptyMap();
+        this.xpathIndex = xpathIndex;
+        this.elementIndex = elementIndex;
+        this.xpath = xpath;
+    }
+
+    // Lazy element: only the token index is held, everything else is decoded and cached on first access
+    public Element(ElementSource source, int xpathIndex) {
+        this(source, xpathIndex, null, UNRESOLVED, null);
+    }
+
+    // Lazy element whose name and position are already known to the caller (e.g. while walking children)
+    public Element(ElementSource source, int xpathIndex, String tagName, int elementIndex, String xpath) {
+        this.source = source;
         this.xpathIndex = xpathIndex;
+        this.tagName = tagName;
         this.elementIndex = elementIndex;
         this.xpath = xpath;
     }
 
     // Legacy constructor for backward compatibility
     public Element(String tagName, String attributeName, String attributeValue, String textContent) {
+        this.source = null;
         this.tagName = tagName;
         this.textContent = textContent;
         this.attributes = new HashMap<>();
         if (attributeName != null && attributeValue != null) {
             this.attributes.put(attributeName, attributeValue);
         }
+        this.attributes = Collections.unmodifiableMap(this.attributes);
         this.elementIndex = 0;
     }
 
     public String getTagName() {
+        if (tagName == null && source != null) {
+            tagName = source.getTagName(xpathIndex);
+        }
         return tagName;
     }
 
@@ -40,45 +64,65 @@ public class Element {
     }
 
     public String getTextContent() {
+        if (textContent == null && source != null) {
+            textContent = source.getTextContent(xpathIndex);
+        }
         return textContent;
     }
 
     public String getXpath() {
+        if (xpath == null && source != null) {
+            xpath = source.getXpath(xpathIndex);
+        }
         return xpath;
     }
 
     public String getValue() {
-        return textContent;
+        return getTextContent();
     }
 
     public Map<String, String> getAttributes() {
-        return new HashMap<>(attributes);
+        if (attributes == null) {
+            attributes = source != null
+                    ? Collections.unmodifiableMap(source.getAttributes(xpathIndex))
+                    : Collections.emptyMap();
+        }
+        return attributes;
     }
 
     public String getAttribute(String attributeName) {
-        return attributes.get(attributeName);
+        if (attributes == null && source != null) {
+            // A single lookup does not need the whole attribute map decoded
+            return source.getAttribute(xpathIndex, attributeName);
+        }
+        return getAttributes().get(attributeName);
     }
 
     public int getElementIndex() {
+        if (elementIndex == UNRESOLVED && source != null) {
+            elementIndex = source.getElementIndex(xpathIndex);
+        }
         return elementIndex;
     }
 
     // Legacy methods for backward compatibility
     public String getAttributeName() {
-        return attributes.isEmpty() ? null : attributes.keySet().iterator().next();
+        Map<String, String> attrs = getAttributes();
+        return attrs.isEmpty() ? null : attrs.keySet().iterator().next();
     }
 
     public String getAttributeValue() {
-        return attributes.isEmpty() ? null : attributes.values().iterator().next();
+        Map<String, String> attrs = getAttributes();
+        return attrs.isEmpty() ? null : attrs.values().iterator().next();
     }
 
     @Override
     public String toString() {
         return "ElementResult{" +
-                "tagName='" + tagName + '\'' +
-                ", attributes=" + attributes +
-                ", textContent='" + textContent + '\'' +
-                ", elementIndex=" + elementIndex +
+                "tagName='" + getTagName() + '\'' +
+                ", attributes=" + getAttributes() +
+                ", textContent='" + getTextContent() + '\'' +
+                ", elementIndex=" + getElementIndex() +
                 '}';
     }
-}
\ No newline at end of file
+}
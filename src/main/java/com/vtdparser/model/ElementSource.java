@@ -0,0 +1,18 @@
+package com.vtdparser.model;
+
+import java.util.Map;
+
+// Decodes element data on demand from the token index held by a lazy Element
+public interface ElementSource {
+    String getTagName(int xpathIndex);
+
+    String getTextContent(int xpathIndex);
+
+    Map<String, String> getAttributes(int xpathIndex);
+
+    String getAttribute(int xpathIndex, String attributeName);
+
+    int getElementIndex(int xpathIndex);
+
+    String getXpath(int xpathIndex);
+}
@@ -0,0 +1,93 @@
+package com.vtdparser.model;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Column-oriented result of a projection query: one String[] per requested column, one entry per
+// match, in document order. Values are null where a match lacks the attribute.
+public class Projection {
+    // Column name that selects the element's text instead of an attribute
+    public static final String TEXT = "text()";
+
+    private final List<String> columns;
+    private final int[] tokenIndexes;
+    private final String[][] values;
+    private final int size;
+    private final ElementSource source;
+
+    public Projection(String[] columns, int[] tokenIndexes, String[][] values, int size, ElementSource source) {
+        this.columns = Collections.unmodifiableList(Arrays.asList(columns.clone()));
+        this.tokenIndexes = tokenIndexes;
+        this.values = values;
+        this.size = size;
+        this.source = source;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public List<String> getColumns() {
+        return columns;
+    }
+
+    public String get(int row, int column) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("Row " + row + " out of range for size " + size);
+        }
+        return values[column][row];
+    }
+
+    public String get(int row, String column) {
+        return get(row, columnIndex(column));
+    }
+
+    // Copy of one column, sized to the number of rows
+    public String[] getColumn(String column) {
+        return Arrays.copyOf(values[columnIndex(column)], size);
+    }
+
+    public Map<String, String> getRow(int row) {
+        Map<String, String> result = new LinkedHashMap<>();
+        for (int column = 0; column < columns.size(); column++) {
+            result.put(columns.get(column), get(row, column));
+        }
+        return result;
+    }
+
+    public int getTokenIndex(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("Row " + row + " out of range for size " + size);
+        }
+        return tokenIndexes[row];
+    }
+
+    // Lazy element for the row, for callers that need more than the projected columns. Returns null for
+    // memory-mapped documents, which cannot resolve elements from a token index.
+    public Element getElement(int row) {
+        return source != null ? new Element(source, getTokenIndex(row)) : null;
+    }
+
+    private int columnIndex(String column) {
+        int index = columns.indexOf(column);
+        if (index == -1) {
+            throw new IllegalArgumentException("Column not projected: " + column);
+        }
+        return index;
+    }
+
+    @Override
+    public String toString() {
+        return "Projection{" +
+                "columns=" + columns +
+                ", size=" + size +
+                '}';
+    }
+}
@@ -0,0 +1,244 @@
+package com.vtdparser.model;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+// View of one text or attribute value inside the document buffer. Nothing is copied or decoded up
+// front: when the raw bytes are single-byte characters without entity references the view reads them
+// directly, otherwise the decoded String is built once on first need and cached. The buffer is the
+// document's own and must not be modified.
+public final class TokenValue implements CharSequence {
+    private final byte[] buffer;
+    private final int offset;
+    private final int byteLength;
+    private final Charset charset;
+    private final boolean entities;
+    private final boolean direct;
+    private String decoded;
+
+    public TokenValue(byte[] buffer, int offset, int byteLength, Charset charset) {
+        this.buffer = buffer;
+        this.offset = offset;
+        this.byteLength = byteLength;
+        this.charset = charset;
+
+        boolean wide = charset.equals(StandardCharsets.UTF_16BE) || charset.equals(StandardCharsets.UTF_16LE);
+        boolean latin1 = charset.equals(StandardCharsets.ISO_8859_1);
+        boolean hasEntities = false;
+        boolean ascii = true;
+        if (!wide) {
+            for (int i = offset, end = offset + byteLength; i < end; i++) {
+                byte b = buffer[i];
+                if (b == '&') {
+                    hasEntities = true;
+                } else if (b < 0) {
+                    ascii = false;
+                }
+            }
+        } else {
+            hasEntities = true; // Decoded through the charset; a UTF-16 view is never direct
+        }
+        this.entities = hasEntities;
+        this.direct = !wide && !hasEntities && (ascii || latin1);
+    }
+
+    public byte[] getBuffer() {
+        return buffer;
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    public int getByteLength() {
+        return byteLength;
+    }
+
+    public Charset getCharset() {
+        return charset;
+    }
+
+    // True when the raw bytes contain entity or character references that decoding resolves
+    public boolean hasEntities() {
+        return entities;
+    }
+
+    // True when every byte is one character of the value, so reads need no decoding
+    public boolean isDirect() {
+        return direct;
+    }
+
+    @Override
+    public int length() {
+        return direct ? byteLength : decoded().length();
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (direct) {
+            if (index < 0 || index >= byteLength) {
+                throw new IndexOutOfBoundsException("Index " + index + " out of range for length " + byteLength);
+            }
+            return (char) (buffer[offset + index] & 0xff);
+        }
+        return decoded().charAt(index);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        if (direct) {
+            if (start < 0 || end > byteLength || start > end) {
+                throw new IndexOutOfBoundsException("Range [" + start + ", " + end + ") out of bounds for length " + byteLength);
+            }
+            return new TokenValue(buffer, offset + start, end - start, charset);
+        }
+        return decoded().subSequence(start, end);
+    }
+
+    public boolean contentEquals(CharSequence other) {
+        if (!direct) {
+            return decoded().contentEquals(other);
+        }
+        if (other.length() != byteLength) {
+            return false;
+        }
+        for (int i = 0; i < byteLength; i++) {
+            if ((char) (buffer[offset + i] & 0xff) != other.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Same value as toString().hashCode(), computed without building the String
+    public int contentHashCode() {
+        if (!direct) {
+            return decoded().hashCode();
+        }
+        int hash = 0;
+        for (int i = offset, end = offset + byteLength; i < end; i++) {
+            hash = 31 * hash + (buffer[i] & 0xff);
+        }
+        return hash;
+    }
+
+    public StringBuilder appendTo(StringBuilder builder) {
+        if (!direct) {
+            return builder.append(decoded());
+        }
+        builder.ensureCapacity(builder.length() + byteLength);
+        for (int i = offset, end = offset + byteLength; i < end; i++) {
+            builder.append((char) (buffer[i] & 0xff));
+        }
+        return builder;
+    }
+
+    // Writes the value as UTF-8. Raw bytes are copied straight from the document when they already
+    // are the UTF-8 form of the value.
+    public void writeTo(OutputStream out) throws IOException {
+        if (isRawUtf8()) {
+            out.write(buffer, offset, byteLength);
+        } else {
+            out.write(decoded().getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    // Same as writeTo(OutputStream); returns the number of bytes written
+    public int writeTo(ByteBuffer target) {
+        if (isRawUtf8()) {
+            target.put(buffer, offset, byteLength);
+            return byteLength;
+        }
+        byte[] bytes = decoded().getBytes(StandardCharsets.UTF_8);
+        target.put(bytes);
+        return bytes.length;
+    }
+
+    private boolean isRawUtf8() {
+        if (entities) {
+            return false;
+        }
+        // ASCII is valid UTF-8 whatever the declared single-byte encoding
+        return charset.equals(StandardCharsets.UTF_8) || charset.equals(StandardCharsets.US_ASCII) || direct && isAscii();
+    }
+
+    private boolean isAscii() {
+        for (int i = offset, end = offset + byteLength; i < end; i++) {
+            if (buffer[i] < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return direct ? new String(buffer, offset, byteLength, StandardCharsets.ISO_8859_1) : decoded();
+    }
+
+    private String decoded() {
+        if (decoded == null) {
+            String raw = new String(buffer, offset, byteLength, charset);
+            decoded = entities ? decodeEntities(raw) : raw;
+        }
+        return decoded;
+    }
+
+    // Resolves the predefined entities and character references, the same set VTD-XML resolves
+    static String decodeEntities(String raw) {
+        int ampersand = raw.indexOf('&');
+        if (ampersand == -1) {
+            return raw;
+        }
+        StringBuilder result = new StringBuilder(raw.length());
+        int start = 0;
+        while (ampersand != -1) {
+            int semicolon = raw.indexOf(';', ampersand);
+            if (semicolon == -1) {
+                break;
+            }
+            result.append(raw, start, ampersand);
+            String entity = raw.substring(ampersand + 1, semicolon);
+            int codePoint = resolveEntity(entity);
+            if (codePoint == -1) {
+                result.append(raw, ampersand, semicolon + 1); // Left as written
+            } else {
+                result.appendCodePoint(codePoint);
+            }
+            start = semicolon + 1;
+            ampersand = raw.indexOf('&', start);
+        }
+        return result.append(raw, start, raw.length()).toString();
+    }
+
+    private static int resolveEntity(String entity) {
+        switch (entity) {
+            case "lt":
+                return '<';
+            case "gt":
+                return '>';
+            case "amp":
+                return '&';
+            case "quot":
+                return '"';
+            case "apos":
+                return '\'';
+            default:
+                break;
+        }
+        try {
+            if (entity.startsWith("#x")) {
+                return Integer.parseInt(entity.substring(2), 16);
+            }
+            if (entity.startsWith("#")) {
+                return Integer.parseInt(entity.substring(1));
+            }
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,48 @@
+package com.vtdparser.pool;
+
+import com.vtdparser.VTDXMLParser;
+import com.vtdparser.exception.ResourceManagementException;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Pins one pooled document until closed. Query through getParser() only while the lease is open;
+// the pool may close the parser once the last lease on it is gone.
+public class DocumentLease implements AutoCloseable {
+    private final DocumentPool pool;
+    private final DocumentPool.Entry entry;
+    private final VTDXMLParser parser;
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    DocumentLease(DocumentPool pool, DocumentPool.Entry entry) {
+        this.pool = pool;
+        this.entry = entry;
+        this.parser = entry.getParser();
+    }
+
+    public VTDXMLParser getParser() {
+        if (closed.get()) {
+            throw new ResourceManagementException("Lease on " + entry.key.path + " is closed");
+        }
+        return parser;
+    }
+
+    public String getPath() {
+        return entry.key.path;
+    }
+
+    public String getVersion() {
+        return entry.key.version;
+    }
+
+    public boolean isClosed() {
+        return closed.get();
+    }
+
+    // Closing twice is harmless
+    @Override
+    public void close() {
+        if (closed.compareAndSet(false, true)) {
+            pool.release(entry);
+        }
+    }
+}
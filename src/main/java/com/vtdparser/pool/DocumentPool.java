@@ -0,0 +1,267 @@
+package com.vtdparser.pool;
+
+import com.vtdparser.VTDXMLParser;
+import com.vtdparser.config.ParserConfiguration;
+import com.vtdparser.exception.ResourceManagementException;
+import com.vtdparser.util.ResourceManager;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+// Keeps many documents loaded at once under a global heap budget. Documents are keyed by path and
+// version and handed out as leases; while any lease is open the document is pinned, so nothing is
+// released under a running query. When the budget is exceeded the least recently used unpinned
+// documents are closed, or with DEMOTE_TO_MAPPED reloaded memory-mapped on their next use. Pinned
+// documents may push the pool over budget until their leases are closed.
+public class DocumentPool implements AutoCloseable {
+    public enum EvictionPolicy {
+        CLOSE,
+        DEMOTE_TO_MAPPED
+    }
+
+    private final ParserConfiguration configuration;
+    private final ParserConfiguration mappedConfiguration;
+    private final long maxBytes;
+    private final EvictionPolicy evictionPolicy;
+    private final ResourceManager resources = new ResourceManager();
+    // Access order, so iteration starts at the least recently used entry
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long residentBytes;
+    private long evictionCount;
+    private boolean closed;
+
+    public DocumentPool(ParserConfiguration configuration, long maxBytes) {
+        this(configuration, maxBytes, EvictionPolicy.CLOSE);
+    }
+
+    public DocumentPool(ParserConfiguration configuration, long maxBytes, EvictionPolicy evictionPolicy) {
+        // Pooled parsers would all claim the same MBean name
+        this.configuration = new ParserConfiguration(configuration);
+        this.configuration.setMetricsMBeanName(null);
+        this.mappedConfiguration = new ParserConfiguration(this.configuration);
+        this.mappedConfiguration.setMemoryMapped(true);
+        this.maxBytes = maxBytes;
+        this.evictionPolicy = evictionPolicy;
+    }
+
+    // The file's modification time serves as its version, so a rewritten file is loaded afresh
+    public DocumentLease acquire(String xmlFilePath) throws Exception {
+        return acquire(xmlFilePath, String.valueOf(new File(xmlFilePath).lastModified()));
+    }
+
+    public DocumentLease acquire(String xmlFilePath, String version) throws Exception {
+        Key key = new Key(xmlFilePath, version);
+        Entry entry;
+        synchronized (this) {
+            if (closed) {
+                throw new ResourceManagementException("Document pool is closed");
+            }
+            entry = entries.get(key);
+            if (entry == null) {
+                entry = new Entry(key);
+                entries.put(key, entry);
+            }
+            entry.leases++;
+        }
+
+        try {
+            // Loads run outside the pool lock so one large document does not stall every other lookup
+            entry.ensureLoaded();
+        } catch (Exception e) {
+            synchronized (this) {
+                entry.leases--;
+                if (entry.leases == 0 && entry.parser == null) {
+                    entries.remove(key, entry);
+                }
+            }
+            throw e;
+        }
+
+        synchronized (this) {
+            if (!entry.accounted) {
+                entry.accounted = true;
+                residentBytes += entry.bytes;
+            }
+            evictOverBudget();
+        }
+        return new DocumentLease(this, entry);
+    }
+
+    synchronized void release(Entry entry) {
+        entry.leases--;
+        if (entry.leases == 0 && entry.retired) {
+            unload(entry);
+        } else {
+            evictOverBudget();
+        }
+    }
+
+    public synchronized long getResidentBytes() {
+        return residentBytes;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+
+    // Scans rather than calling get(), which would count as an access and change the eviction order
+    public synchronized boolean contains(String xmlFilePath, String version) {
+        Key key = new Key(xmlFilePath, version);
+        for (Entry entry : entries.values()) {
+            if (entry.key.equals(key)) {
+                return entry.parser != null;
+            }
+        }
+        return false;
+    }
+
+    // Bytes held by each resident document, for diagnostics
+    public synchronized Map<String, Long> getResidentDocuments() {
+        Map<String, Long> resident = new LinkedHashMap<>();
+        for (Entry entry : entries.values()) {
+            if (entry.parser != null) {
+                resident.put(entry.key.path + "@" + entry.key.version, entry.bytes);
+            }
+        }
+        return resident;
+    }
+
+    // Removes the document; if it is leased it is released once the last lease closes
+    public synchronized void invalidate(String xmlFilePath, String version) {
+        Entry entry = entries.remove(new Key(xmlFilePath, version));
+        if (entry != null) {
+            retire(entry);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        closed = true;
+        for (Entry entry : new ArrayList<>(entries.values())) {
+            retire(entry);
+        }
+        entries.clear();
+    }
+
+    private void evictOverBudget() {
+        Iterator<Entry> lru = entries.values().iterator();
+        while (residentBytes > maxBytes && lru.hasNext()) {
+            Entry entry = lru.next();
+            if (entry.leases > 0 || entry.parser == null) {
+                continue;
+            }
+            evictionCount++;
+            if (evictionPolicy == EvictionPolicy.DEMOTE_TO_MAPPED && !entry.mapped) {
+                unload(entry);
+                entry.mapped = true; // Reloaded memory-mapped on the next acquire
+            } else {
+                lru.remove();
+                unload(entry);
+            }
+        }
+    }
+
+    private void retire(Entry entry) {
+        entry.retired = true;
+        if (entry.leases == 0) {
+            unload(entry);
+        }
+    }
+
+    private void unload(Entry entry) {
+        VTDXMLParser parser = entry.parser;
+        if (parser == null) {
+            return;
+        }
+        entry.parser = null;
+        if (entry.accounted) {
+            residentBytes -= entry.bytes;
+            entry.accounted = false;
+        }
+        try {
+            resources.release(parser);
+        } catch (ResourceManagementException e) {
+            System.err.println("Error releasing pooled document " + entry.key.path + ": " + e.getMessage());
+        }
+    }
+
+    static final class Key {
+        final String path;
+        final String version;
+
+        Key(String path, String version) {
+            this.path = path;
+            this.version = version;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return path.equals(other.path) && Objects.equals(version, other.version);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * path.hashCode() + Objects.hashCode(version);
+        }
+    }
+
+    final class Entry {
+        final Key key;
+        // Guarded by the pool
+        int leases;
+        boolean accounted;
+        boolean retired;
+        boolean mapped;
+        volatile VTDXMLParser parser;
+        long bytes;
+
+        Entry(Key key) {
+            this.key = key;
+        }
+
+        // Concurrent first acquires of the same document load it once
+        synchronized void ensureLoaded() throws Exception {
+            if (parser != null) {
+                return;
+            }
+            boolean loadMapped;
+            synchronized (DocumentPool.this) {
+                loadMapped = mapped;
+            }
+            VTDXMLParser loaded = new VTDXMLParser(loadMapped ? mappedConfiguration : configuration);
+            try {
+                loaded.loadDocument(key.path);
+            } catch (Exception e) {
+                loaded.close();
+                throw e;
+            }
+            synchronized (DocumentPool.this) {
+                bytes = loaded.getMemoryFootprint();
+                parser = resources.register(loaded);
+            }
+        }
+
+        VTDXMLParser getParser() {
+            return parser;
+        }
+    }
+}
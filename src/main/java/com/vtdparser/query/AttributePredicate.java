@@ -0,0 +1,72 @@
+package com.vtdparser.query;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+// One attribute test of an ElementQuery. Names and values are compared against the raw tokens, never
+// spliced into an expression, so values may contain quotes or any other character.
+public final class AttributePredicate {
+    public enum Operator {
+        EQUALS,
+        PREFIX,
+        IN
+    }
+
+    private final String attributeName;
+    private final Operator operator;
+    private final List<String> values;
+
+    private AttributePredicate(String attributeName, Operator operator, List<String> values) {
+        if (attributeName == null || attributeName.isEmpty()) {
+            throw new IllegalArgumentException("Attribute name must not be empty");
+        }
+        if (values.contains(null)) {
+            throw new IllegalArgumentException("Attribute values must not be null");
+        }
+        this.attributeName = attributeName;
+        this.operator = operator;
+        this.values = values;
+    }
+
+    public static AttributePredicate equalTo(String attributeName, String value) {
+        return new AttributePredicate(attributeName, Operator.EQUALS, Collections.singletonList(value));
+    }
+
+    public static AttributePredicate startsWith(String attributeName, String prefix) {
+        return new AttributePredicate(attributeName, Operator.PREFIX, Collections.singletonList(prefix));
+    }
+
+    public static AttributePredicate in(String attributeName, Collection<String> values) {
+        return new AttributePredicate(attributeName, Operator.IN, Collections.unmodifiableList(Arrays.asList(values.toArray(new String[0]))));
+    }
+
+    public static AttributePredicate in(String attributeName, String... values) {
+        return in(attributeName, Arrays.asList(values));
+    }
+
+    public String getAttributeName() {
+        return attributeName;
+    }
+
+    public Operator getOperator() {
+        return operator;
+    }
+
+    public List<String> getValues() {
+        return values;
+    }
+
+    @Override
+    public String toString() {
+        switch (operator) {
+            case EQUALS:
+                return "@" + attributeName + "='" + values.get(0) + "'";
+            case PREFIX:
+                return "starts-with(@" + attributeName + ", '" + values.get(0) + "')";
+            default:
+                return "@" + attributeName + " in " + values;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.vtdparser.query;
+
+import com.vtdparser.model.Element;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+// Typed element query: a tag name, an optional parent scope, attribute predicates that must all hold,
+// and a result limit. VTDXMLParser evaluates it in one scan over the token buffer.
+public final class ElementQuery {
+    // Predicates are tracked as bits of a long while an element's attributes are scanned
+    public static final int MAX_PREDICATES = 64;
+
+    private final String tagName;
+    private final Element scope;
+    private final List<AttributePredicate> predicates;
+    private final int limit;
+
+    private ElementQuery(Builder builder) {
+        this.tagName = builder.tagName;
+        this.scope = builder.scope;
+        this.predicates = Collections.unmodifiableList(new ArrayList<>(builder.predicates));
+        this.limit = builder.limit;
+    }
+
+    // "*" or null matches any tag
+    public static Builder forTag(String tagName) {
+        return new Builder(tagName == null || tagName.equals("*") ? null : tagName);
+    }
+
+    public static Builder anyElement() {
+        return new Builder(null);
+    }
+
+    // Null when any tag matches
+    public String getTagName() {
+        return tagName;
+    }
+
+    // Null when the whole document is searched
+    public Element getScope() {
+        return scope;
+    }
+
+    public List<AttributePredicate> getPredicates() {
+        return predicates;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    // XPath-like rendering for logs; not meant to be evaluated
+    @Override
+    public String toString() {
+        StringBuilder description = new StringBuilder();
+        if (scope != null) {
+            description.append("(scope #").append(scope.getXpathIndex()).append(')');
+        }
+        description.append("//").append(tagName != null ? tagName : "*");
+        for (AttributePredicate predicate : predicates) {
+            description.append('[').append(predicate).append(']');
+        }
+        if (limit != Integer.MAX_VALUE) {
+            description.append(" limit ").append(limit);
+        }
+        return description.toString();
+    }
+
+    public static final class Builder {
+        private final String tagName;
+        private final List<AttributePredicate> predicates = new ArrayList<>();
+        private Element scope;
+        private int limit = Integer.MAX_VALUE;
+
+        private Builder(String tagName) {
+            this.tagName = tagName;
+        }
+
+        // Restricts matches to descendants of the given element
+        public Builder within(Element scope) {
+            this.scope = scope;
+            return this;
+        }
+
+        public Builder where(AttributePredicate predicate) {
+            if (predicates.size() == MAX_PREDICATES) {
+                throw new IllegalArgumentException("At most " + MAX_PREDICATES + " predicates are supported");
+            }
+            predicates.add(predicate);
+            return this;
+        }
+
+        public Builder attributeEquals(String attributeName, String value) {
+            return where(AttributePredicate.equalTo(attributeName, value));
+        }
+
+        public Builder attributeStartsWith(String attributeName, String prefix) {
+            return where(AttributePredicate.startsWith(attributeName, prefix));
+        }
+
+        public Builder attributeIn(String attributeName, Collection<String> values) {
+            return where(AttributePredicate.in(attributeName, values));
+        }
+
+        public Builder attributeIn(String attributeName, String... values) {
+            return where(AttributePredicate.in(attributeName, values));
+        }
+
+        public Builder limit(int limit) {
+            this.limit = limit;
+            return this;
+        }
+
+        public ElementQuery build() {
+            return new ElementQuery(this);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.vtdparser.query;
+
+import com.vtdparser.model.Element;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Predicate;
+
+// Element queries evaluated together by VTDXMLParser.evaluate(QueryBatch) in one sweep over the token
+// buffer. Each query has its own collector; a collector returning false stops only its own query.
+public final class QueryBatch {
+    private final List<ElementQuery> queries = new ArrayList<>();
+    private final List<Predicate<Element>> collectors = new ArrayList<>();
+
+    public QueryBatch add(ElementQuery query, Predicate<Element> collector) {
+        queries.add(query);
+        collectors.add(collector);
+        return this;
+    }
+
+    // Only counted: no Element is created for the matches
+    public QueryBatch add(ElementQuery query) {
+        return add(query, null);
+    }
+
+    // Returns the list the matches will be appended to during evaluation
+    public List<Element> addCollecting(ElementQuery query) {
+        List<Element> results = new ArrayList<>();
+        add(query, results::add);
+        return results;
+    }
+
+    public int size() {
+        return queries.size();
+    }
+
+    public List<ElementQuery> getQueries() {
+        return Collections.unmodifiableList(queries);
+    }
+
+    // Null for count-only queries
+    public Predicate<Element> getCollector(int index) {
+        return collectors.get(index);
+    }
+}
@@ -0,0 +1,8 @@
+package com.vtdparser.stream;
+
+// Work done on one chunk while its parser is open. The parser is closed as soon as this returns, so
+// results must not hold on to its lazy elements; DocumentChunk.detach copies what an element carries.
+@FunctionalInterface
+public interface ChunkFunction<T> {
+    T apply(DocumentChunk chunk) throws Exception;
+}
@@ -0,0 +1,159 @@
+package com.vtdparser.stream;
+
+import com.vtdparser.VTDXMLParser;
+import com.vtdparser.config.ParserConfiguration;
+import com.vtdparser.model.Element;
+
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+// Queries documents too large to hold as one VTD index by splitting them at their top-level records
+// (see RecordChunker) and loading one chunk at a time, each in its own parser. Heap use is bounded by
+// the chunks in flight: one when sequential, up to twice the parallelism otherwise. Results are always
+// delivered in document order.
+//
+// Every query runs against one chunk, so expressions that look across records are evaluated per chunk:
+// positional steps on the records (/root/record[1], last()), sibling axes between records and counts
+// over the whole root give per-chunk answers. Queries inside a record, and attribute or text
+// predicates on records, give the same matches as on the whole document.
+public class ChunkedParser implements AutoCloseable {
+    private final ParserConfiguration configuration;
+    private final int maxChunkBytes;
+    // Null when chunks are processed on the calling thread
+    private final ExecutorService executor;
+    private final boolean ownsExecutor;
+    private final int maxChunksInFlight;
+
+    public ChunkedParser(ParserConfiguration configuration, int maxChunkBytes) {
+        this(configuration, maxChunkBytes, null, 1, false);
+    }
+
+    public ChunkedParser(ParserConfiguration configuration, int maxChunkBytes, int parallelism) {
+        this(configuration, maxChunkBytes, parallelism > 1 ? Executors.newFixedThreadPool(parallelism) : null,
+                Math.max(parallelism, 1) * 2, parallelism > 1);
+    }
+
+    public ChunkedParser(ParserConfiguration configuration, int maxChunkBytes, ExecutorService executor, int maxChunksInFlight) {
+        this(configuration, maxChunkBytes, executor, maxChunksInFlight, false);
+    }
+
+    private ChunkedParser(ParserConfiguration configuration, int maxChunkBytes, ExecutorService executor,
+                          int maxChunksInFlight, boolean ownsExecutor) {
+        if (maxChunkBytes <= 0) {
+            throw new IllegalArgumentException("maxChunkBytes must be positive: " + maxChunkBytes);
+        }
+        // Chunks are heap documents that live for one call; they are never mapped, indexed on disk or
+        // registered with JMX
+        this.configuration = new ParserConfiguration(configuration);
+        this.configuration.setMemoryMapped(false);
+        this.configuration.setPersistentIndexEnabled(false);
+        this.configuration.setMetricsMBeanName(null);
+        this.maxChunkBytes = maxChunkBytes;
+        this.executor = executor;
+        this.maxChunksInFlight = Math.max(maxChunksInFlight, 1);
+        this.ownsExecutor = ownsExecutor;
+    }
+
+    public <T> int process(String xmlFilePath, ChunkFunction<T> function, Consumer<? super T> sink) throws Exception {
+        try (InputStream in = new FileInputStream(xmlFilePath)) {
+            return process(in, function, sink);
+        }
+    }
+
+    // Applies the function to every chunk and hands its results to the sink in document order; returns
+    // the number of chunks. The stream is read to the root end tag but not closed.
+    public <T> int process(InputStream in, ChunkFunction<T> function, Consumer<? super T> sink) throws Exception {
+        RecordChunker chunker = new RecordChunker(in, maxChunkBytes);
+        if (executor == null) {
+            int chunks = 0;
+            RecordChunker.RawChunk raw;
+            while ((raw = chunker.next()) != null) {
+                sink.accept(apply(raw, function));
+                chunks++;
+            }
+            return chunks;
+        }
+
+        ArrayDeque<Future<T>> inFlight = new ArrayDeque<>();
+        int chunks = 0;
+        try {
+            RecordChunker.RawChunk raw;
+            while ((raw = chunker.next()) != null) {
+                RecordChunker.RawChunk submitted = raw;
+                inFlight.addLast(executor.submit(() -> apply(submitted, function)));
+                chunks++;
+                if (inFlight.size() >= maxChunksInFlight) {
+                    sink.accept(await(inFlight.removeFirst()));
+                }
+            }
+            while (!inFlight.isEmpty()) {
+                sink.accept(await(inFlight.removeFirst()));
+            }
+            return chunks;
+        } finally {
+            for (Future<T> pending : inFlight) {
+                pending.cancel(true);
+            }
+        }
+    }
+
+    public List<Element> searchByXPath(InputStream in, String xpathExpression) throws Exception {
+        List<Element> results = new ArrayList<>();
+        process(in, chunk -> chunk.detachAll(chunk.getParser().searchByXPath(xpathExpression)), results::addAll);
+        return results;
+    }
+
+    public int getElementCountByXPath(InputStream in, String xpath) throws Exception {
+        int[] count = new int[1];
+        process(in, chunk -> chunk.getParser().getElementCountByXPath(xpath), chunkCount -> count[0] += chunkCount);
+        return count[0];
+    }
+
+    public List<Element> searchByAttribute(InputStream in, String tagName, String attributeName, String attributeValue) throws Exception {
+        List<Element> results = new ArrayList<>();
+        process(in, chunk -> chunk.detachAll(chunk.getParser().searchByAttribute(tagName, attributeName, attributeValue)),
+                results::addAll);
+        return results;
+    }
+
+    public int getMaxChunkBytes() {
+        return maxChunkBytes;
+    }
+
+    private <T> T apply(RecordChunker.RawChunk raw, ChunkFunction<T> function) throws Exception {
+        try (VTDXMLParser parser = new VTDXMLParser(configuration)) {
+            parser.loadDocument(raw.bytes, 0, raw.length);
+            return function.apply(new DocumentChunk(raw.index, raw.recordCount, raw.precedingRecords, parser));
+        }
+    }
+
+    private static <T> T await(Future<T> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public void close() {
+        if (ownsExecutor) {
+            executor.shutdown();
+        }
+    }
+}
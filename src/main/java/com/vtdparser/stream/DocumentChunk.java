@@ -0,0 +1,90 @@
+package com.vtdparser.stream;
+
+import com.vtdparser.VTDXMLParser;
+import com.vtdparser.model.Element;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+// One chunk of a document split at its top-level records, loaded in its own parser. Queries see the
+// root element with this chunk's records as its only children.
+public class DocumentChunk {
+    private final int index;
+    private final int recordCount;
+    private final Map<String, Integer> precedingRecords;
+    private final VTDXMLParser parser;
+
+    DocumentChunk(int index, int recordCount, Map<String, Integer> precedingRecords, VTDXMLParser parser) {
+        this.index = index;
+        this.recordCount = recordCount;
+        this.precedingRecords = precedingRecords;
+        this.parser = parser;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public int getRecordCount() {
+        return recordCount;
+    }
+
+    public VTDXMLParser getParser() {
+        return parser;
+    }
+
+    // Copies the element's name, text and attributes so it outlives the chunk. Its position and xpath
+    // are shifted by the records in earlier chunks, so they refer to the whole document.
+    public Element detach(Element element) {
+        String xpath = element.getXpath();
+        int position = element.getElementIndex();
+        if (xpath != null && isRecord(xpath)) {
+            position += precedingRecords.getOrDefault(element.getTagName(), 0);
+        }
+        return new Element(element.getTagName(), element.getTextContent(), element.getAttributes(), -1, position,
+                documentXpath(xpath));
+    }
+
+    public List<Element> detachAll(List<Element> elements) {
+        List<Element> detached = new ArrayList<>(elements.size());
+        for (Element element : elements) {
+            detached.add(detach(element));
+        }
+        return detached;
+    }
+
+    // "/root[1]/RECORD[n]" exactly
+    private static boolean isRecord(String xpath) {
+        int second = xpath.indexOf('/', 1);
+        return second != -1 && xpath.indexOf('/', second + 1) == -1;
+    }
+
+    // Rewrites the record step "/root[1]/RECORD[n]/..." to the record's position in the whole document
+    private String documentXpath(String xpath) {
+        if (xpath == null) {
+            return null;
+        }
+        int second = xpath.indexOf('/', 1);
+        if (second == -1) {
+            return xpath;
+        }
+        int third = xpath.indexOf('/', second + 1);
+        int stepEnd = third == -1 ? xpath.length() : third;
+        int bracket = xpath.lastIndexOf('[', stepEnd);
+        if (bracket <= second || xpath.charAt(stepEnd - 1) != ']') {
+            return xpath;
+        }
+        String name = xpath.substring(second + 1, bracket);
+        int position = Integer.parseInt(xpath.substring(bracket + 1, stepEnd - 1)) + precedingRecords.getOrDefault(name, 0);
+        return xpath.substring(0, second + 1) + name + "[" + position + "]" + xpath.substring(stepEnd);
+    }
+
+    @Override
+    public String toString() {
+        return "DocumentChunk{" +
+                "index=" + index +
+                ", recordCount=" + recordCount +
+                '}';
+    }
+}
@@ -0,0 +1,373 @@
+package com.vtdparser.stream;
+
+import com.vtdparser.exception.VTDParserException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+// Splits a document into self-contained chunks without parsing it: each chunk is the XML declaration
+// and root start tag of the original, followed by whole top-level records (the root's child elements)
+// and the root end tag. Only markup structure is tracked - tags, quoted attribute values, comments,
+// CDATA sections and processing instructions - so the scan is one pass over the bytes. Text, comments
+// and CDATA directly under the root are dropped; the DOCTYPE is not carried into chunks. Needs an
+// ASCII-compatible encoding (UTF-8, ISO-8859-1, ASCII).
+final class RecordChunker {
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    private final InputStream in;
+    private final int maxChunkBytes;
+    private final byte[] readBuffer = new byte[READ_BUFFER_SIZE];
+    private int readPosition;
+    private int readLimit;
+    private int pushback = -1;
+
+    private byte[] header;
+    private byte[] footer;
+    private boolean rootClosed;
+    private int chunkIndex;
+    private final Map<String, Integer> recordCounts = new HashMap<>();
+    // Where copied bytes go; null while skipping
+    private ByteSink sink;
+
+    RecordChunker(InputStream in, int maxChunkBytes) {
+        this.in = in;
+        this.maxChunkBytes = maxChunkBytes;
+    }
+
+    // The next chunk, or null once the root element has been closed
+    RawChunk next() throws IOException {
+        if (header == null) {
+            readProlog();
+        }
+        if (rootClosed) {
+            return null;
+        }
+        ByteSink chunk = new ByteSink(Math.min(maxChunkBytes, 1 << 20) + header.length + footer.length);
+        chunk.write(header);
+        Map<String, Integer> preceding = new HashMap<>(recordCounts);
+        int records = 0;
+        // A chunk always takes at least one record, so a record larger than the limit gets a chunk of its own
+        while (records == 0 || chunk.length() < maxChunkBytes) {
+            sink = chunk;
+            String recordName = copyRecord();
+            sink = null;
+            if (recordName == null) {
+                rootClosed = true;
+                break;
+            }
+            recordCounts.merge(recordName, 1, Integer::sum);
+            records++;
+        }
+        if (records == 0) {
+            return null;
+        }
+        chunk.write(footer);
+        return new RawChunk(chunkIndex++, chunk.array(), chunk.length(), records, preceding);
+    }
+
+    private void readProlog() throws IOException {
+        int b = read();
+        if (b == 0xEF) {
+            // UTF-8 byte order mark
+            read();
+            read();
+        } else if (b == 0xFE || b == 0xFF || b == 0) {
+            throw new VTDParserException("Chunked parsing needs an ASCII-compatible encoding; UTF-16 is not supported");
+        } else {
+            unread(b);
+        }
+
+        byte[] declaration = new byte[0];
+        while (true) {
+            b = read();
+            if (b == -1) {
+                throw new VTDParserException("Document has no root element");
+            }
+            if (b != '<') {
+                continue;
+            }
+            int c = read();
+            if (c == '?') {
+                ByteSink instruction = new ByteSink(64);
+                instruction.write('<');
+                instruction.write('?');
+                sink = instruction;
+                copyUntil("?>");
+                sink = null;
+                String text = new String(instruction.array(), 0, instruction.length(), StandardCharsets.ISO_8859_1);
+                if (text.startsWith("<?xml ")) {
+                    if (text.toLowerCase(Locale.ROOT).contains("utf-16")) {
+                        throw new VTDParserException("Chunked parsing needs an ASCII-compatible encoding; UTF-16 is not supported");
+                    }
+                    declaration = instruction.toByteArray();
+                }
+            } else if (c == '!') {
+                int d = read();
+                if (d == '-') {
+                    copyUntil("-->");
+                } else {
+                    skipDoctype();
+                }
+            } else {
+                ByteSink rootTag = new ByteSink(256);
+                sink = rootTag;
+                rootTag.write('<');
+                String rootName = copyName(c);
+                boolean empty = copyTagRest();
+                sink = null;
+                rootClosed = empty;
+
+                ByteSink start = new ByteSink(declaration.length + rootTag.length() + 1);
+                if (declaration.length > 0) {
+                    start.write(declaration);
+                    start.write('\n');
+                }
+                start.write(rootTag.toByteArray());
+                header = start.toByteArray();
+                footer = ("</" + rootName + ">").getBytes(StandardCharsets.UTF_8);
+                return;
+            }
+        }
+    }
+
+    // Copies one top-level record into the sink and returns its tag name, or returns null at the root end tag
+    private String copyRecord() throws IOException {
+        ByteSink chunk = sink;
+        while (true) {
+            // Nothing between records is copied
+            sink = null;
+            int b = read();
+            if (b == -1) {
+                throw new VTDParserException("Unexpected end of document inside the root element");
+            }
+            if (b != '<') {
+                continue;
+            }
+            int c = read();
+            if (c == '/') {
+                copyUntil(">");
+                return null;
+            }
+            if (c == '!') {
+                copyMarkupDeclaration();
+                continue;
+            }
+            if (c == '?') {
+                copyUntil("?>");
+                continue;
+            }
+
+            sink = chunk;
+            chunk.write('<');
+            String name = copyName(c);
+            int depth = copyTagRest() ? 0 : 1;
+            while (depth > 0) {
+                int x = readRequired();
+                chunk.write(x);
+                if (x != '<') {
+                    continue;
+                }
+                int y = readRequired();
+                chunk.write(y);
+                if (y == '/') {
+                    copyTagRest();
+                    depth--;
+                } else if (y == '!') {
+                    copyMarkupDeclaration();
+                } else if (y == '?') {
+                    copyUntil("?>");
+                } else if (!copyTagRest()) {
+                    depth++;
+                }
+            }
+            return name;
+        }
+    }
+
+    // Copies a tag name that starts with the given byte; the byte that ends it is pushed back
+    private String copyName(int first) throws IOException {
+        ByteSink name = new ByteSink(32);
+        int b = first;
+        while (b != -1 && b != '>' && b != '/' && !isWhitespace(b)) {
+            name.write(b);
+            emit(b);
+            b = read();
+        }
+        unread(b);
+        return new String(name.array(), 0, name.length(), StandardCharsets.UTF_8);
+    }
+
+    // Copies the rest of a tag through its closing '>' and tells whether it was self-closing.
+    // A '>' inside a quoted attribute value does not end the tag.
+    private boolean copyTagRest() throws IOException {
+        int quote = 0;
+        int previous = 0;
+        while (true) {
+            int b = readRequired();
+            emit(b);
+            if (quote != 0) {
+                if (b == quote) {
+                    quote = 0;
+                }
+            } else if (b == '"' || b == '\'') {
+                quote = b;
+            } else if (b == '>') {
+                return previous == '/';
+            }
+            previous = b;
+        }
+    }
+
+    // After "<!": a comment, a CDATA section or some other declaration
+    private void copyMarkupDeclaration() throws IOException {
+        int b = readRequired();
+        emit(b);
+        if (b == '-') {
+            copyUntil("-->");
+        } else if (b == '[') {
+            copyUntil("]]>");
+        } else {
+            copyUntil(">");
+        }
+    }
+
+    // Copies through the first occurrence of the terminator
+    private void copyUntil(String terminator) throws IOException {
+        int length = terminator.length();
+        int target = 0;
+        for (int i = 0; i < length; i++) {
+            target = target << 8 | terminator.charAt(i);
+        }
+        int mask = length == 4 ? -1 : (1 << (8 * length)) - 1;
+        int window = 0;
+        int seen = 0;
+        while (true) {
+            int b = readRequired();
+            emit(b);
+            window = (window << 8 | b) & mask;
+            if (++seen >= length && window == target) {
+                return;
+            }
+        }
+    }
+
+    // After "<!" outside the root: skips a DOCTYPE including any internal subset
+    private void skipDoctype() throws IOException {
+        int bracketDepth = 0;
+        int quote = 0;
+        while (true) {
+            int b = readRequired();
+            if (quote != 0) {
+                if (b == quote) {
+                    quote = 0;
+                }
+            } else if (b == '"' || b == '\'') {
+                quote = b;
+            } else if (b == '[') {
+                bracketDepth++;
+            } else if (b == ']') {
+                bracketDepth--;
+            } else if (b == '>' && bracketDepth == 0) {
+                return;
+            }
+        }
+    }
+
+    private void emit(int b) {
+        if (sink != null) {
+            sink.write(b);
+        }
+    }
+
+    private static boolean isWhitespace(int b) {
+        return b == ' ' || b == '\t' || b == '\n' || b == '\r';
+    }
+
+    private int readRequired() throws IOException {
+        int b = read();
+        if (b == -1) {
+            throw new VTDParserException("Unexpected end of document inside markup");
+        }
+        return b;
+    }
+
+    private int read() throws IOException {
+        if (pushback != -1) {
+            int b = pushback;
+            pushback = -1;
+            return b;
+        }
+        if (readPosition == readLimit) {
+            readLimit = in.read(readBuffer, 0, readBuffer.length);
+            readPosition = 0;
+            if (readLimit <= 0) {
+                readLimit = 0;
+                return -1;
+            }
+        }
+        return readBuffer[readPosition++] & 0xff;
+    }
+
+    private void unread(int b) {
+        pushback = b;
+    }
+
+    static final class RawChunk {
+        final int index;
+        final byte[] bytes;
+        final int length;
+        final int recordCount;
+        // Top-level records per tag name in all earlier chunks
+        final Map<String, Integer> precedingRecords;
+
+        RawChunk(int index, byte[] bytes, int length, int recordCount, Map<String, Integer> precedingRecords) {
+            this.index = index;
+            this.bytes = bytes;
+            this.length = length;
+            this.recordCount = recordCount;
+            this.precedingRecords = precedingRecords;
+        }
+    }
+
+    private static final class ByteSink {
+        private byte[] bytes;
+        private int length;
+
+        ByteSink(int initialCapacity) {
+            this.bytes = new byte[Math.max(initialCapacity, 16)];
+        }
+
+        void write(int b) {
+            if (length == bytes.length) {
+                byte[] grown = new byte[(int) Math.min((long) bytes.length * 2, Integer.MAX_VALUE - 8)];
+                System.arraycopy(bytes, 0, grown, 0, length);
+                bytes = grown;
+            }
+            bytes[length++] = (byte) b;
+        }
+
+        void write(byte[] data) {
+            for (byte b : data) {
+                write(b);
+            }
+        }
+
+        int length() {
+            return length;
+        }
+
+        byte[] array() {
+            return bytes;
+        }
+
+        byte[] toByteArray() {
+            byte[] copy = new byte[length];
+            System.arraycopy(bytes, 0, copy, 0, length);
+            return copy;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.vtdparser.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+// Recycles byte arrays used to read documents from streams. Capacities are powers of two so that a
+// released buffer serves any later request of up to its size; a few buffers are kept per size and
+// the rest are left to the garbage collector. Arrays above MAX_POOLED_CAPACITY are never pooled.
+public class BufferPool {
+    private static final int MIN_SHIFT = 10;
+    private static final int MAX_SHIFT = 30;
+    public static final int MAX_POOLED_CAPACITY = 1 << MAX_SHIFT;
+    // Leaves headroom below Integer.MAX_VALUE, which some JVMs cannot allocate
+    private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+
+    private static final BufferPool SHARED = new BufferPool(4);
+
+    private final int maxBuffersPerSize;
+    private final List<ConcurrentLinkedDeque<byte[]>> buckets;
+    private final AtomicIntegerArray bucketSizes;
+
+    public BufferPool(int maxBuffersPerSize) {
+        this.maxBuffersPerSize = maxBuffersPerSize;
+        // Indexed by shift; the slots below MIN_SHIFT stay empty
+        this.buckets = new ArrayList<>(MAX_SHIFT + 1);
+        for (int shift = 0; shift <= MAX_SHIFT; shift++) {
+            buckets.add(shift < MIN_SHIFT ? null : new ConcurrentLinkedDeque<>());
+        }
+        this.bucketSizes = new AtomicIntegerArray(MAX_SHIFT + 1);
+    }
+
+    public static BufferPool shared() {
+        return SHARED;
+    }
+
+    // A buffer of at least minCapacity bytes; its contents are undefined
+    public byte[] acquire(long minCapacity) {
+        if (minCapacity > MAX_POOLED_CAPACITY) {
+            if (minCapacity > MAX_ARRAY_SIZE) {
+                throw new OutOfMemoryError("Document of " + minCapacity + " bytes exceeds the maximum array size");
+            }
+            return new byte[(int) minCapacity];
+        }
+        int shift = shiftFor(minCapacity);
+        byte[] buffer = buckets.get(shift).pollFirst();
+        if (buffer != null) {
+            bucketSizes.decrementAndGet(shift);
+            return buffer;
+        }
+        return new byte[1 << shift];
+    }
+
+    // Doubles the buffer (at least), keeping the first used bytes, and recycles the old one
+    public byte[] grow(byte[] buffer, int used) {
+        long capacity = Math.max((long) buffer.length * 2, (long) used + 1);
+        byte[] grown = acquire(Math.min(capacity, MAX_ARRAY_SIZE));
+        System.arraycopy(buffer, 0, grown, 0, used);
+        release(buffer);
+        return grown;
+    }
+
+    // Arrays that did not come from acquire() are accepted as long as their size is a pooled capacity
+    public void release(byte[] buffer) {
+        int capacity = buffer.length;
+        if (capacity > MAX_POOLED_CAPACITY || capacity < (1 << MIN_SHIFT) || Integer.bitCount(capacity) != 1) {
+            return;
+        }
+        int shift = Integer.numberOfTrailingZeros(capacity);
+        if (bucketSizes.incrementAndGet(shift) > maxBuffersPerSize) {
+            bucketSizes.decrementAndGet(shift);
+            return;
+        }
+        buckets.get(shift).offerFirst(buffer);
+    }
+
+    public int getPooledCount() {
+        int count = 0;
+        for (int shift = MIN_SHIFT; shift <= MAX_SHIFT; shift++) {
+            count += bucketSizes.get(shift);
+        }
+        return count;
+    }
+
+    private static int shiftFor(long minCapacity) {
+        if (minCapacity <= 1 << MIN_SHIFT) {
+            return MIN_SHIFT;
+        }
+        return 64 - Long.numberOfLeadingZeros(minCapacity - 1);
+    }
+}
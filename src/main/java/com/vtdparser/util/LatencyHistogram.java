@@ -0,0 +1,145 @@
+package com.vtdparser.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+// Log-linear histogram of nanosecond latencies in the style of HdrHistogram: each power of two is split
+// into 32 linear sub-buckets, so a recorded value is reported within about 3% of its true value.
+// The bucket array is allocated by the first record, so a histogram that never sees a value, such as
+// every histogram of a disabled PerformanceMetrics, stays a few words. After that, recording is a
+// handful of atomic adds and never allocates; snapshots are taken without locking.
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+
+    private final AtomicReference<AtomicLongArray> buckets = new AtomicReference<>();
+    private final LongAdder totalCount = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0L);
+
+    public void record(long nanos) {
+        long value = Math.max(nanos, 0L);
+        buckets().incrementAndGet(indexOf(value));
+        totalCount.increment();
+        totalNanos.add(value);
+        maxNanos.accumulate(value);
+    }
+
+    public long getCount() {
+        return totalCount.sum();
+    }
+
+    public void reset() {
+        AtomicLongArray current = buckets.get();
+        if (current != null) {
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                current.set(i, 0L);
+            }
+        }
+        totalCount.reset();
+        totalNanos.reset();
+        maxNanos.reset();
+    }
+
+    public Snapshot snapshot() {
+        long[] copy = new long[BUCKET_COUNT];
+        long count = 0;
+        AtomicLongArray current = buckets.get();
+        if (current != null) {
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                copy[i] = current.get(i);
+                count += copy[i];
+            }
+        }
+        return new Snapshot(copy, count, totalNanos.sum(), maxNanos.get());
+    }
+
+    private AtomicLongArray buckets() {
+        AtomicLongArray current = buckets.get();
+        if (current == null) {
+            // Racing first records may both allocate; only one array is kept
+            buckets.compareAndSet(null, new AtomicLongArray(BUCKET_COUNT));
+            current = buckets.get();
+        }
+        return current;
+    }
+
+    static int indexOf(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKET_COUNT - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT + subBucket;
+    }
+
+    // Largest value that lands in the bucket, so percentiles never under-report
+    static long highestValueIn(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int exponent = index / SUB_BUCKET_COUNT + SUB_BUCKET_BITS - 1;
+        long width = 1L << (exponent - SUB_BUCKET_BITS);
+        return (SUB_BUCKET_COUNT + index % SUB_BUCKET_COUNT) * width + width - 1;
+    }
+
+    // Point-in-time copy of the histogram; all values are in nanoseconds
+    public static final class Snapshot {
+        private final long[] counts;
+        private final long count;
+        private final long totalNanos;
+        private final long maxNanos;
+
+        Snapshot(long[] counts, long count, long totalNanos, long maxNanos) {
+            this.counts = counts;
+            this.count = count;
+            this.totalNanos = totalNanos;
+            this.maxNanos = maxNanos;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getTotalNanos() {
+            return totalNanos;
+        }
+
+        public long getMaxNanos() {
+            return maxNanos;
+        }
+
+        public double getMeanNanos() {
+            return count == 0 ? 0.0 : (double) totalNanos / count;
+        }
+
+        public long getPercentileNanos(double percentile) {
+            if (count == 0) {
+                return 0L;
+            }
+            long target = Math.max(1L, (long) Math.ceil(count * Math.min(percentile, 100.0) / 100.0));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= target) {
+                    return Math.min(highestValueIn(i), maxNanos);
+                }
+            }
+            return maxNanos;
+        }
+
+        @Override
+        public String toString() {
+            return "LatencyHistogram.Snapshot{" +
+                    "count=" + count +
+                    ", mean=" + Math.round(getMeanNanos()) +
+                    " ns, p50=" + getPercentileNanos(50) +
+                    " ns, p99=" + getPercentileNanos(99) +
+                    " ns, max=" + maxNanos +
+                    " ns}";
+        }
+    }
+}
@@ -1,40 +1,261 @@
-public class PerformanceMetrics {
-    private long startTime;
-    private long endTime;
-    private long totalParsingTime;
-    private int totalElementsParsed;
+package com.vtdparser.util;
 
-    public void start() {
-        startTime = System.nanoTime();
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+// Latency histograms and counters for one parser. Every method is safe to call from concurrent queries;
+// counters are LongAdders and histograms are lock-free. A disabled instance ignores every record call
+// and never reads the clock, so instrumented paths cost a branch; its histograms never allocate their
+// buckets, which keeps a disabled instance cheap to create once per parser.
+public class PerformanceMetrics implements PerformanceMetricsMXBean {
+    public enum Operation {
+        LOAD,
+        XPATH_COMPILE,
+        EVALUATION,
+        MATERIALIZATION
+    }
+
+    private final boolean enabled;
+    private final LatencyHistogram[] histograms = new LatencyHistogram[Operation.values().length];
+    private final LongAdder documentsLoaded = new LongAdder();
+    private final LongAdder bytesParsed = new LongAdder();
+    private final LongAdder matchesReturned = new LongAdder();
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder cacheMisses = new LongAdder();
+    private ObjectName registeredName;
+
+    public PerformanceMetrics() {
+        this(true);
+    }
+
+    public PerformanceMetrics(boolean enabled) {
+        this.enabled = enabled;
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new LatencyHistogram();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Pass the returned value to the matching record method once the operation finishes
+    public long startTimer() {
+        return enabled ? System.nanoTime() : 0L;
+    }
+
+    public void recordLoad(long startNanos, long bytes) {
+        if (enabled) {
+            histograms[Operation.LOAD.ordinal()].record(System.nanoTime() - startNanos);
+            documentsLoaded.increment();
+            bytesParsed.add(bytes);
+        }
+    }
+
+    public void recordCompile(long startNanos) {
+        if (enabled) {
+            histograms[Operation.XPATH_COMPILE.ordinal()].record(System.nanoTime() - startNanos);
+        }
+    }
+
+    public void recordEvaluation(long startNanos, long matches) {
+        if (enabled) {
+            histograms[Operation.EVALUATION.ordinal()].record(System.nanoTime() - startNanos);
+            matchesReturned.add(matches);
+        }
+    }
+
+    public void recordMaterialization(long startNanos) {
+        if (enabled) {
+            histograms[Operation.MATERIALIZATION.ordinal()].record(System.nanoTime() - startNanos);
+        }
+    }
+
+    // Matches handed out without a timed evaluation, e.g. through a lazily consumed stream
+    public void recordMatches(long matches) {
+        if (enabled) {
+            matchesReturned.add(matches);
+        }
+    }
+
+    public void recordCacheHit() {
+        if (enabled) {
+            cacheHits.increment();
+        }
+    }
+
+    public void recordCacheMiss() {
+        if (enabled) {
+            cacheMisses.increment();
+        }
+    }
+
+    public LatencyHistogram getHistogram(Operation operation) {
+        return histograms[operation.ordinal()];
+    }
+
+    @Override
+    public long getDocumentsLoaded() {
+        return documentsLoaded.sum();
+    }
+
+    @Override
+    public long getBytesParsed() {
+        return bytesParsed.sum();
+    }
+
+    @Override
+    public long getQueriesEvaluated() {
+        return histograms[Operation.EVALUATION.ordinal()].getCount();
     }
 
-    public void stop() {
-        endTime = System.nanoTime();
-        totalParsingTime += (endTime - startTime);
+    @Override
+    public long getMatchesReturned() {
+        return matchesReturned.sum();
     }
 
-    public void incrementElementCount() {
-        totalElementsParsed++;
+    @Override
+    public double getXPathCacheHitRate() {
+        long hits = cacheHits.sum();
+        long total = hits + cacheMisses.sum();
+        return total == 0 ? 0.0 : (double) hits / total;
     }
 
-    public long getTotalParsingTime() {
-        return totalParsingTime;
+    @Override
+    public Map<String, Long> getLatencyNanos() {
+        Map<String, Long> latencies = new LinkedHashMap<>();
+        for (Operation operation : Operation.values()) {
+            LatencyHistogram.Snapshot snapshot = getHistogram(operation).snapshot();
+            String prefix = operation.name().toLowerCase(Locale.ROOT) + ".";
+            latencies.put(prefix + "count", snapshot.getCount());
+            latencies.put(prefix + "mean", Math.round(snapshot.getMeanNanos()));
+            latencies.put(prefix + "p50", snapshot.getPercentileNanos(50));
+            latencies.put(prefix + "p90", snapshot.getPercentileNanos(90));
+            latencies.put(prefix + "p99", snapshot.getPercentileNanos(99));
+            latencies.put(prefix + "p999", snapshot.getPercentileNanos(99.9));
+            latencies.put(prefix + "max", snapshot.getMaxNanos());
+        }
+        return latencies;
     }
 
-    public int getTotalElementsParsed() {
-        return totalElementsParsed;
+    public Snapshot snapshot() {
+        Map<Operation, LatencyHistogram.Snapshot> latencies = new EnumMap<>(Operation.class);
+        for (Operation operation : Operation.values()) {
+            latencies.put(operation, getHistogram(operation).snapshot());
+        }
+        return new Snapshot(latencies, documentsLoaded.sum(), bytesParsed.sum(), matchesReturned.sum(),
+                cacheHits.sum(), cacheMisses.sum());
     }
 
+    @Override
     public void reset() {
-        totalParsingTime = 0;
-        totalElementsParsed = 0;
+        for (LatencyHistogram histogram : histograms) {
+            histogram.reset();
+        }
+        documentsLoaded.reset();
+        bytesParsed.reset();
+        matchesReturned.reset();
+        cacheHits.reset();
+        cacheMisses.reset();
+    }
+
+    public synchronized void registerMBean(String name) {
+        try {
+            unregisterMBean();
+            ObjectName objectName = new ObjectName("com.vtdparser:type=PerformanceMetrics,name=" + ObjectName.quote(name));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+            registeredName = objectName;
+        } catch (Exception e) {
+            System.err.println("Error registering performance metrics MBean: " + e.getMessage());
+        }
+    }
+
+    public synchronized void unregisterMBean() {
+        if (registeredName == null) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(registeredName);
+        } catch (Exception e) {
+            System.err.println("Error unregistering performance metrics MBean: " + e.getMessage());
+        }
+        registeredName = null;
     }
 
     @Override
     public String toString() {
         return "PerformanceMetrics{" +
-                "totalParsingTime=" + totalParsingTime +
-                " ns, totalElementsParsed=" + totalElementsParsed +
+                "documentsLoaded=" + getDocumentsLoaded() +
+                ", bytesParsed=" + getBytesParsed() +
+                ", queriesEvaluated=" + getQueriesEvaluated() +
+                ", matchesReturned=" + getMatchesReturned() +
+                ", xpathCacheHitRate=" + getXPathCacheHitRate() +
                 '}';
     }
-}
\ No newline at end of file
+
+    // Immutable point-in-time view of every histogram and counter
+    public static final class Snapshot {
+        private final Map<Operation, LatencyHistogram.Snapshot> latencies;
+        private final long documentsLoaded;
+        private final long bytesParsed;
+        private final long matchesReturned;
+        private final long cacheHits;
+        private final long cacheMisses;
+
+        Snapshot(Map<Operation, LatencyHistogram.Snapshot> latencies, long documentsLoaded, long bytesParsed,
+                 long matchesReturned, long cacheHits, long cacheMisses) {
+            this.latencies = Collections.unmodifiableMap(latencies);
+            this.documentsLoaded = documentsLoaded;
+            this.bytesParsed = bytesParsed;
+            this.matchesReturned = matchesReturned;
+            this.cacheHits = cacheHits;
+            this.cacheMisses = cacheMisses;
+        }
+
+        public LatencyHistogram.Snapshot getLatency(Operation operation) {
+            return latencies.get(operation);
+        }
+
+        public long getDocumentsLoaded() {
+            return documentsLoaded;
+        }
+
+        public long getBytesParsed() {
+            return bytesParsed;
+        }
+
+        public long getMatchesReturned() {
+            return matchesReturned;
+        }
+
+        public long getCacheHits() {
+            return cacheHits;
+        }
+
+        public long getCacheMisses() {
+            return cacheMisses;
+        }
+
+        public double getCacheHitRate() {
+            long total = cacheHits + cacheMisses;
+            return total == 0 ? 0.0 : (double) cacheHits / total;
+        }
+
+        @Override
+        public String toString() {
+            return "PerformanceMetrics.Snapshot{" +
+                    "documentsLoaded=" + documentsLoaded +
+                    ", bytesParsed=" + bytesParsed +
+                    ", matchesReturned=" + matchesReturned +
+                    ", cacheHitRate=" + getCacheHitRate() +
+                    ", latencies=" + latencies +
+                    '}';
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.vtdparser.util;
+
+import java.util.Map;
+
+// Management view of PerformanceMetrics, registered when ParserConfiguration.setMetricsMBeanName is set
+public interface PerformanceMetricsMXBean {
+    long getDocumentsLoaded();
+
+    long getBytesParsed();
+
+    long getQueriesEvaluated();
+
+    long getMatchesReturned();
+
+    double getXPathCacheHitRate();
+
+    // "<operation>.<count|mean|p50|p90|p99|p999|max>" in nanoseconds, e.g. "evaluation.p99"
+    Map<String, Long> getLatencyNanos();
+
+    void reset();
+}
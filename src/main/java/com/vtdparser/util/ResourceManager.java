@@ -1,34 +1,86 @@
-public class ResourceManager {
+package com.vtdparser.util;
 
+import com.vtdparser.exception.ResourceManagementException;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+// Owns closeable resources (parsers, channels, ...) on behalf of a longer-lived component. Resources
+// are closed one at a time through release() or all together, newest first, by cleanupResources().
+public class ResourceManager implements AutoCloseable {
+
+    private final Deque<AutoCloseable> resources = new ArrayDeque<>();
     private boolean resourcesInitialized;
 
     public ResourceManager() {
         this.resourcesInitialized = false;
     }
 
-    public void initializeResources() {
-        // Initialize resources needed for the parser
-        // e.g., memory-mapped files, native libraries, etc.
-        if (!resourcesInitialized) {
-            // Logic to initialize resources
-            resourcesInitialized = true;
+    public synchronized void initializeResources() {
+        resourcesInitialized = true;
+    }
+
+    public synchronized boolean isInitialized() {
+        return resourcesInitialized;
+    }
+
+    public synchronized <T extends AutoCloseable> T register(T resource) {
+        initializeResources();
+        resources.push(resource);
+        return resource;
+    }
+
+    public synchronized int getResourceCount() {
+        return resources.size();
+    }
+
+    // Closes the resource now and stops tracking it; resources this manager does not own are left alone
+    public void release(AutoCloseable resource) {
+        boolean owned;
+        synchronized (this) {
+            owned = resources.removeFirstOccurrence(resource);
+        }
+        if (owned) {
+            try {
+                resource.close();
+            } catch (Exception e) {
+                throw new ResourceManagementException("Failed to release resource " + resource, e);
+            }
         }
     }
 
+    // Closes everything, carrying on past failures; the first failure is thrown with the rest suppressed
     public void cleanupResources() {
-        // Cleanup resources to prevent memory leaks
-        if (resourcesInitialized) {
-            // Logic to release resources
+        List<AutoCloseable> toClose;
+        synchronized (this) {
+            if (!resourcesInitialized) {
+                return;
+            }
+            toClose = new ArrayList<>(resources);
+            resources.clear();
             resourcesInitialized = false;
         }
+        ResourceManagementException failure = null;
+        for (AutoCloseable resource : toClose) {
+            try {
+                resource.close();
+            } catch (Exception e) {
+                if (failure == null) {
+                    failure = new ResourceManagementException("Failed to release resource " + resource, e);
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
     }
 
     @Override
-    protected void finalize() throws Throwable {
-        try {
-            cleanupResources();
-        } finally {
-            super.finalize();
-        }
+    public void close() {
+        cleanupResources();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,210 @@
+package com.vtdparser.util;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+// Keeps the most recent queries that ran longer than the threshold and aggregates their cost per
+// expression. Only queries over the threshold reach record(), so fast queries never touch it.
+public class SlowQueryLog {
+    // Bounds the per-expression view when expressions embed literal values
+    private static final int MAX_EXPRESSIONS = 1024;
+
+    private final long thresholdNanos;
+    private final int capacity;
+    private final ConcurrentLinkedDeque<SlowQuery> recent = new ConcurrentLinkedDeque<>();
+    private final AtomicInteger recentSize = new AtomicInteger();
+    private final ConcurrentHashMap<String, ExpressionStats> byExpression = new ConcurrentHashMap<>();
+    private final LongAdder droppedExpressions = new LongAdder();
+
+    // A negative threshold disables the log
+    public SlowQueryLog(long thresholdMillis, int capacity) {
+        this.thresholdNanos = thresholdMillis < 0 ? -1L : thresholdMillis * 1_000_000L;
+        this.capacity = capacity;
+    }
+
+    public boolean isEnabled() {
+        return thresholdNanos >= 0;
+    }
+
+    public long getThresholdNanos() {
+        return thresholdNanos;
+    }
+
+    public boolean isSlow(long elapsedNanos) {
+        return thresholdNanos >= 0 && elapsedNanos >= thresholdNanos;
+    }
+
+    public void record(String operation, String expression, long evaluationNanos, int matchCount,
+                       long materializationNanos, long nodesVisited) {
+        SlowQuery query = new SlowQuery(operation, expression, System.currentTimeMillis(), evaluationNanos,
+                matchCount, materializationNanos, nodesVisited);
+        recent.addFirst(query);
+        if (recentSize.incrementAndGet() > capacity && recent.pollLast() != null) {
+            recentSize.decrementAndGet();
+        }
+
+        ExpressionStats stats = byExpression.get(expression);
+        if (stats == null) {
+            if (byExpression.size() >= MAX_EXPRESSIONS) {
+                droppedExpressions.increment();
+                return;
+            }
+            stats = byExpression.computeIfAbsent(expression, ExpressionStats::new);
+        }
+        stats.add(query);
+    }
+
+    // Newest first
+    public List<SlowQuery> getRecent() {
+        return new ArrayList<>(recent);
+    }
+
+    public List<ExpressionStats> getTopByTotalTime(int limit) {
+        List<ExpressionStats> stats = new ArrayList<>(byExpression.values());
+        stats.sort(Comparator.comparingLong(ExpressionStats::getTotalNanos).reversed());
+        return stats.size() > limit ? new ArrayList<>(stats.subList(0, limit)) : stats;
+    }
+
+    // Slow queries whose expression was not aggregated because the per-expression view was full
+    public long getDroppedExpressionCount() {
+        return droppedExpressions.sum();
+    }
+
+    public void clear() {
+        recent.clear();
+        recentSize.set(0);
+        byExpression.clear();
+        droppedExpressions.reset();
+    }
+
+    public static final class SlowQuery {
+        private final String operation;
+        private final String expression;
+        private final long timestamp;
+        private final long evaluationNanos;
+        private final int matchCount;
+        private final long materializationNanos;
+        private final long nodesVisited;
+
+        SlowQuery(String operation, String expression, long timestamp, long evaluationNanos, int matchCount,
+                  long materializationNanos, long nodesVisited) {
+            this.operation = operation;
+            this.expression = expression;
+            this.timestamp = timestamp;
+            this.evaluationNanos = evaluationNanos;
+            this.matchCount = matchCount;
+            this.materializationNanos = materializationNanos;
+            this.nodesVisited = nodesVisited;
+        }
+
+        public String getOperation() {
+            return operation;
+        }
+
+        public String getExpression() {
+            return expression;
+        }
+
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        // Wall time of the whole query, materialization included
+        public long getEvaluationNanos() {
+            return evaluationNanos;
+        }
+
+        public int getMatchCount() {
+            return matchCount;
+        }
+
+        public long getMaterializationNanos() {
+            return materializationNanos;
+        }
+
+        public long getNodesVisited() {
+            return nodesVisited;
+        }
+
+        @Override
+        public String toString() {
+            return "SlowQuery{" +
+                    "operation=" + operation +
+                    ", expression='" + expression + '\'' +
+                    ", evaluation=" + evaluationNanos / 1_000 +
+                    " us, matches=" + matchCount +
+                    ", materialization=" + materializationNanos / 1_000 +
+                    " us, nodesVisited=" + nodesVisited +
+                    '}';
+        }
+    }
+
+    public static final class ExpressionStats {
+        private final String expression;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0L);
+        private final LongAdder totalMatches = new LongAdder();
+        private final LongAdder totalMaterializationNanos = new LongAdder();
+        private final LongAdder totalNodesVisited = new LongAdder();
+
+        ExpressionStats(String expression) {
+            this.expression = expression;
+        }
+
+        void add(SlowQuery query) {
+            count.increment();
+            totalNanos.add(query.evaluationNanos);
+            maxNanos.accumulate(query.evaluationNanos);
+            totalMatches.add(query.matchCount);
+            totalMaterializationNanos.add(query.materializationNanos);
+            totalNodesVisited.add(query.nodesVisited);
+        }
+
+        public String getExpression() {
+            return expression;
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        public long getTotalNanos() {
+            return totalNanos.sum();
+        }
+
+        public long getMaxNanos() {
+            return maxNanos.get();
+        }
+
+        public long getTotalMatches() {
+            return totalMatches.sum();
+        }
+
+        public long getTotalMaterializationNanos() {
+            return totalMaterializationNanos.sum();
+        }
+
+        public long getTotalNodesVisited() {
+            return totalNodesVisited.sum();
+        }
+
+        @Override
+        public String toString() {
+            return "ExpressionStats{" +
+                    "expression='" + expression + '\'' +
+                    ", count=" + getCount() +
+                    ", total=" + getTotalNanos() / 1_000 +
+                    " us, max=" + getMaxNanos() / 1_000 +
+                    " us, matches=" + getTotalMatches() +
+                    ", nodesVisited=" + getTotalNodesVisited() +
+                    '}';
+        }
+    }
+}
@@ -1,12 +1,40 @@
 package com.vtdparser;
 
+import com.vtdparser.builder.VTDParserBuilder;
+import com.vtdparser.cache.CacheStatistics;
+import com.vtdparser.config.AttributeIndexMode;
+import com.vtdparser.index.IndexStore;
 import com.vtdparser.model.Element;
+import com.vtdparser.model.Projection;
+import com.vtdparser.model.TokenValue;
+import com.vtdparser.query.ElementQuery;
+import com.vtdparser.query.QueryBatch;
+import com.vtdparser.testdata.SchedulerXmlGenerator;
+import com.vtdparser.util.LatencyHistogram;
+import com.vtdparser.util.PerformanceMetrics;
+import com.vtdparser.util.SlowQueryLog;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -182,6 +210,567 @@ public class VTDXMLParserTest {
     assertEquals("/root[1]/element[3]/childElement[2]", child.getXpath()); // XPath for the second child
   }
 
+  @Test
+  public void testNavigateFromElement() {
+    Element parent = parser.searchByAttribute("element", "attribute1", "value3").get(0);
+
+    List<Element> children = parser.getChildren(parent, "childElement");
+    assertEquals(2, children.size());
+    assertEquals("/root[1]/element[3]/childElement[2]", children.get(1).getXpath());
+    assertTrue(parser.getChildren(parent, "missing").isEmpty());
+
+    Element sibling = parser.getNextSibling(children.get(0));
+    assertEquals(23, sibling.getXpathIndex());
+    assertEquals("Child Content2", sibling.getValue());
+    assertNull(parser.getNextSibling(sibling));
+
+    Element back = parser.getParent(sibling);
+    assertEquals(16, back.getXpathIndex());
+    assertEquals("/root[1]/element[3]", back.getXpath());
+    assertEquals(3, back.getElementIndex());
+  }
+
+  @Test
+  public void testLazyElementMaterialization() {
+    Element element = parser.searchByXPath("//element").get(0);
+    assertEquals("value2", element.getAttribute("attribute2"));
+    assertNull(element.getAttribute("missing"));
+
+    Map<String, String> attributes = element.getAttributes();
+    assertSame(attributes, element.getAttributes()); // decoded once, not copied per call
+    assertThrows(UnsupportedOperationException.class, () -> attributes.put("attribute3", "value3"));
+    assertEquals("/root[1]/element[1]", element.getXpath());
+  }
+
+  @Test
+  public void testPositionIndex() throws Exception {
+    try (VTDXMLParser indexed = new VTDParserBuilder().setPositionIndexEnabled(true).build()) {
+      indexed.loadDocument("src/test/resources/test-data/small-test.xml");
+
+      List<Element> elements = indexed.searchByXPath("//element");
+      assertEquals(4, elements.size());
+      for (int i = 0; i < elements.size(); i++) {
+        assertEquals(i + 1, elements.get(i).getElementIndex());
+        assertEquals("/root[1]/element[" + (i + 1) + "]", elements.get(i).getXpath());
+        assertEquals("element", elements.get(i).getTagName());
+      }
+
+      Element child = indexed.searchByXPath("//childElement[@name='child2']").get(0);
+      assertEquals(2, child.getElementIndex());
+      assertEquals("/root[1]/element[3]/childElement[2]", child.getXpath());
+    }
+  }
+
+  @Test
+  public void testAttributeIndex() throws Exception {
+    try (VTDXMLParser indexed = new VTDParserBuilder()
+        .setAttributeIndexMode(AttributeIndexMode.EAGER)
+        .addIndexedAttribute("element", "attribute1")
+        .build()) {
+      indexed.loadDocument("src/test/resources/test-data/small-test.xml");
+      assertTrue(indexed.getIndexMemoryFootprint() > 0);
+
+      List<Element> results = indexed.searchByAttribute("element", "attribute1", "value1");
+      assertEquals(2, results.size());
+      assertEquals(6, results.get(0).getXpathIndex());
+      assertEquals(12, results.get(1).getXpathIndex());
+      assertTrue(indexed.searchByAttribute("element", "attribute1", "nonexistent").isEmpty());
+
+      // Not configured up front, so this pair is indexed on first use
+      assertEquals(27, indexed.searchByAttribute("element", "attribute", "value4").get(0).getXpathIndex());
+
+      Element parent = indexed.searchByAttribute("element", "attribute1", "value3").get(0);
+      List<Element> children = indexed.searchChildrenByAttribute(parent, "name", "child2");
+      assertEquals(1, children.size());
+      assertEquals(23, children.get(0).getXpathIndex());
+      assertEquals("/root[1]/element[3]/childElement[2]", children.get(0).getXpath());
+    }
+  }
+
+  @Test
+  public void testXPathCacheReusesCompiledQueries() throws Exception {
+    try (VTDXMLParser cached = new VTDParserBuilder().setXpathCacheSize(1).build()) {
+      cached.loadDocument("src/test/resources/test-data/small-test.xml");
+      CacheStatistics cache = cached.getXPathCacheStatistics();
+
+      // Different values share the compiled //element[@attribute1] query
+      assertEquals(2, cached.searchByAttribute("element", "attribute1", "value1").size());
+      assertEquals(1, cached.searchByAttribute("element", "attribute1", "value3").size());
+      assertEquals(1, cache.getMissCount());
+      assertEquals(1, cache.getHitCount());
+
+      assertEquals(4, cached.getElementCountByXPath("//element"));
+      assertEquals(4, cached.getElementCountByXPath("//element"));
+      assertEquals(1, cache.getEvictionCount());
+      assertEquals(1, cache.getEntryCount());
+      assertEquals(0.5, cache.getHitRate(), 0.0001);
+    }
+  }
+
+  @Test
+  public void testPerformanceMetrics() throws Exception {
+    try (VTDXMLParser metered = new VTDParserBuilder().setMetricsMBeanName("metrics-test").build()) {
+      metered.loadDocument("src/test/resources/test-data/small-test.xml");
+      metered.searchByAttribute("element", "attribute1", "value1").forEach(Element::getAttributes);
+      metered.getElementCountByXPath("//element");
+      metered.getElementCountByXPath("//element");
+
+      PerformanceMetrics.Snapshot snapshot = metered.getPerformanceMetrics().snapshot();
+      assertEquals(1, snapshot.getDocumentsLoaded());
+      assertEquals(new File("src/test/resources/test-data/small-test.xml").length(), snapshot.getBytesParsed());
+      assertEquals(10, snapshot.getMatchesReturned());
+      assertEquals(3, snapshot.getLatency(PerformanceMetrics.Operation.EVALUATION).getCount());
+      assertEquals(2, snapshot.getLatency(PerformanceMetrics.Operation.XPATH_COMPILE).getCount());
+      assertEquals(2, snapshot.getLatency(PerformanceMetrics.Operation.MATERIALIZATION).getCount());
+      assertEquals(1.0 / 3, snapshot.getCacheHitRate(), 0.0001);
+
+      LatencyHistogram.Snapshot load = snapshot.getLatency(PerformanceMetrics.Operation.LOAD);
+      assertEquals(1, load.getCount());
+      assertTrue(load.getPercentileNanos(50) <= load.getMaxNanos());
+      assertEquals(Long.valueOf(3), metered.getPerformanceMetrics().getLatencyNanos().get("evaluation.count"));
+    }
+
+    try (VTDXMLParser unmetered = new VTDParserBuilder().setMetricsEnabled(false).build()) {
+      unmetered.loadDocument("src/test/resources/test-data/small-test.xml");
+      unmetered.getElementCountByXPath("//element");
+      assertEquals(0, unmetered.getPerformanceMetrics().getQueriesEvaluated());
+    }
+  }
+
+  @Test
+  public void testSlowQueryLog() throws Exception {
+    // A zero threshold records every query
+    try (VTDXMLParser logged = new VTDParserBuilder().setSlowQueryThresholdMillis(0).setSlowQueryLogSize(2).build()) {
+      logged.loadDocument("src/test/resources/test-data/small-test.xml");
+      logged.getElementCountByXPath("//element");
+      logged.getElementCountByXPath("//element");
+      logged.forEachByXPath("//element[@attribute1='value1']", element -> {
+        element.getAttributes();
+        return true;
+      });
+
+      SlowQueryLog slowQueryLog = logged.getSlowQueryLog();
+      List<SlowQueryLog.SlowQuery> recent = slowQueryLog.getRecent();
+      assertEquals(2, recent.size());
+      SlowQueryLog.SlowQuery latest = recent.get(0);
+      assertEquals("//element[@attribute1='value1']", latest.getExpression());
+      assertEquals(2, latest.getMatchCount());
+      assertEquals(2, latest.getNodesVisited());
+      assertTrue(latest.getMaterializationNanos() > 0);
+      assertTrue(latest.getMaterializationNanos() <= latest.getEvaluationNanos());
+
+      List<SlowQueryLog.ExpressionStats> top = slowQueryLog.getTopByTotalTime(10);
+      assertEquals(2, top.size());
+      SlowQueryLog.ExpressionStats count = top.stream()
+          .filter(stats -> stats.getExpression().equals("//element")).findFirst().orElseThrow();
+      assertEquals(2, count.getCount());
+      assertEquals(8, count.getTotalMatches());
+
+      // A query whose visitor throws is not recorded, and leaves no trace installed on this thread
+      slowQueryLog.clear();
+      assertThrows(IllegalStateException.class, () -> logged.forEachByXPath("//element", element -> {
+        throw new IllegalStateException("visitor failed");
+      }));
+      assertEquals(0L, QueryTrace.startMaterialization());
+      assertTrue(slowQueryLog.getRecent().isEmpty());
+      logged.getElementCountByXPath("//childElement");
+      assertEquals(1, slowQueryLog.getRecent().size());
+      assertEquals(0L, QueryTrace.startMaterialization());
+    }
+
+    // The default configuration records nothing
+    parser.getElementCountByXPath("//element");
+    assertFalse(parser.getSlowQueryLog().isEnabled());
+    assertTrue(parser.getSlowQueryLog().getRecent().isEmpty());
+  }
+
+  @Test
+  public void testMemoryMappedLoading() throws Exception {
+    try (VTDXMLParser mapped = new VTDParserBuilder().setMemoryMapped(true).build()) {
+      mapped.loadDocument("src/test/resources/test-data/small-test.xml");
+
+      assertEquals(4, mapped.getElementCountByXPath("//element"));
+      assertEquals("Content 1", mapped.getValueByXPath("//element[@attribute1='value1']"));
+
+      List<Element> results = mapped.searchByAttribute("element", "attribute1", "value3");
+      assertEquals(1, results.size());
+      assertEquals("/root[1]/element[3]", results.get(0).getXpath());
+      assertEquals(3, results.get(0).getElementIndex());
+
+      List<Element> children = mapped.searchChildrenByAttribute(results.get(0), "name", "child2");
+      assertEquals(1, children.size());
+      assertEquals("Child Content2", children.get(0).getValue());
+      assertEquals("/root[1]/element[3]/childElement[2]", children.get(0).getXpath());
+      assertEquals(2, mapped.getChildren(results.get(0)).size());
+    }
+  }
+
+  @Test
+  public void testPersistentIndexReload(@TempDir Path tempDir) throws Exception {
+    Path xmlFile = tempDir.resolve("small-test.xml");
+    Files.copy(Path.of("src/test/resources/test-data/small-test.xml"), xmlFile);
+
+    VTDParserBuilder builder = new VTDParserBuilder()
+        .setPersistentIndexEnabled(true)
+        .setIndexChecksumEnabled(true)
+        .setPositionIndexEnabled(true);
+    try (VTDXMLParser first = builder.build()) {
+      first.loadDocument(xmlFile.toString());
+      assertEquals(4, first.getElementCountByXPath("//element"));
+    }
+    assertTrue(new File(xmlFile + ".vtdx").isFile());
+    assertTrue(new File(xmlFile + ".vtdx.meta").isFile());
+
+    try (VTDXMLParser reloaded = builder.build()) {
+      reloaded.loadDocument(xmlFile.toString());
+      List<Element> children = reloaded.getChildren(reloaded.searchByAttribute("element", "attribute1", "value3").get(0));
+      assertEquals(2, children.size());
+      assertEquals("Child Content2", children.get(1).getValue());
+      assertEquals("/root[1]/element[4]", reloaded.searchByXPath("//element").get(3).getXpath());
+    }
+
+    // A document that changes after its fingerprint was taken gets no metadata
+    IndexStore store = new IndexStore(xmlFile.toString(), null, true);
+    IndexStore.Fingerprint parsed = store.fingerprint();
+    Files.writeString(xmlFile, "<!-- edited -->", StandardOpenOption.APPEND);
+    Files.delete(store.getMetadataFile().toPath());
+    store.writeMetadata(parsed, null, null);
+    assertFalse(store.getMetadataFile().exists());
+    store.writeMetadata(store.fingerprint(), null, null);
+    assertTrue(store.getMetadataFile().isFile());
+  }
+
+  @Test
+  public void testConcurrentQueries() throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<String>> futures = new ArrayList<>();
+      for (int i = 0; i < 64; i++) {
+        futures.add(executor.submit(() -> {
+          List<Element> children = parser.getChildren(parser.searchByAttribute("element", "attribute1", "value3").get(0));
+          return parser.getElementCountByXPath("//element") + ":" + children.get(1).getXpath() + ":"
+              + parser.searchByXPath("//element").get(1).getValue();
+        }));
+      }
+      for (Future<String> future : futures) {
+        assertEquals("4:/root[1]/element[3]/childElement[2]:Content 2", future.get());
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testStreamingIteration() {
+    List<String> seen = new ArrayList<>();
+    int visited = parser.forEachByXPath("//element", element -> {
+      seen.add(element.getValue());
+      return seen.size() < 2; // stop after the second match
+    });
+    assertEquals(2, visited);
+    assertEquals(List.of("Content 1", "Content 2"), seen);
+
+    assertEquals(3, parser.searchByXPath("//element", 3).size());
+    assertEquals(1, parser.forEachByXPath("//childElement", 1, element -> true));
+
+    try (Stream<Element> stream = parser.streamByXPath("//childElement")) {
+      assertEquals(List.of("child1", "child2"),
+          stream.map(element -> element.getAttribute("name")).collect(Collectors.toList()));
+    }
+    try (Stream<Element> stream = parser.streamByXPath("//element")) {
+      assertEquals(27, stream.skip(3).findFirst().get().getXpathIndex());
+    }
+
+    assertFalse(parser.existsElement("//element[@attribute1='missing']"));
+
+    // A failing visitor is the caller's error, not a query error
+    IllegalStateException thrown = assertThrows(IllegalStateException.class,
+        () -> parser.forEachByXPath("//element", element -> {
+          throw new IllegalStateException("visitor failed");
+        }));
+    assertEquals("visitor failed", thrown.getMessage());
+  }
+
+  @Test
+  public void testSelectProjection() {
+    Projection projection = parser.select("//element", "attribute1", "missing", Projection.TEXT);
+    assertEquals(4, projection.size());
+    assertEquals(List.of("attribute1", "missing", Projection.TEXT), projection.getColumns());
+    assertEquals("value1", projection.get(0, "attribute1"));
+    assertEquals("Content 1", projection.get(0, Projection.TEXT));
+    assertNull(projection.get(0, "missing"));
+    assertEquals("value3", projection.getColumn("attribute1")[2]);
+    assertEquals(4, projection.getColumn("attribute1").length);
+
+    // Rows can still be turned into elements when more than the projected columns is needed
+    assertEquals(27, projection.getTokenIndex(3));
+    assertEquals("/root[1]/element[4]", projection.getElement(3).getXpath());
+    assertThrows(IllegalArgumentException.class, () -> projection.get(0, "attribute2"));
+
+    assertTrue(parser.select("//nonexistent", "attribute1").isEmpty());
+  }
+
+  @Test
+  public void testElementQuery() throws Exception {
+    ElementQuery both = ElementQuery.forTag("element")
+        .attributeEquals("attribute1", "value1")
+        .attributeEquals("attribute2", "value2")
+        .build();
+    List<Element> results = parser.query(both);
+    assertEquals(1, results.size());
+    assertEquals("/root[1]/element[1]", results.get(0).getXpath());
+
+    assertEquals(2, parser.countMatches(ElementQuery.forTag("element").attributeEquals("attribute1", "value1").build()));
+    assertEquals(3, parser.countMatches(ElementQuery.forTag("element").attributeStartsWith("attribute1", "value").build()));
+    assertEquals(1, parser.countMatches(ElementQuery.forTag("element").attributeIn("attribute1", "value3", "other").build()));
+    assertEquals(1, parser.countMatches(ElementQuery.forTag("element").attributeStartsWith("attribute1", "v").limit(1).build()));
+    assertEquals(2, parser.countMatches(ElementQuery.anyElement().attributeStartsWith("name", "child").build()));
+
+    // Values are compared, never spliced into an expression
+    assertEquals(0, parser.countMatches(ElementQuery.forTag("element").attributeEquals("attribute1", "value1' or '1'='1").build()));
+
+    Element third = parser.searchByXPath("/root/element[3]").get(0);
+    Element first = parser.searchByXPath("/root/element[1]").get(0);
+    ElementQuery child = ElementQuery.forTag("childElement").attributeEquals("name", "child2").within(third).build();
+    assertEquals(1, parser.query(child).size());
+    assertEquals("Child Content2", parser.query(child).get(0).getTextContent());
+    assertEquals(0, parser.countMatches(ElementQuery.forTag("childElement").within(first).build()));
+    assertThrows(IllegalStateException.class, () -> parser.forEachMatch(both, element -> {
+      throw new IllegalStateException("visitor failed");
+    }));
+
+    try (VTDXMLParser mapped = new VTDParserBuilder().setMemoryMapped(true).build()) {
+      mapped.loadDocument("src/test/resources/test-data/small-test.xml");
+      assertEquals(1, mapped.countMatches(both));
+      assertEquals(3, mapped.countMatches(ElementQuery.forTag("element").attributeStartsWith("attribute1", "value").build()));
+      assertEquals(0, mapped.countMatches(ElementQuery.forTag("element").attributeEquals("attribute1", "it's \"quoted\"").build()));
+    }
+  }
+
+  @Test
+  public void testQueryBatchSinglePass() {
+    Element third = parser.searchByXPath("/root/element[3]").get(0);
+    QueryBatch batch = new QueryBatch()
+        .add(ElementQuery.forTag("element").build())
+        .add(ElementQuery.forTag("element").attributeEquals("attribute1", "value1").build())
+        .add(ElementQuery.anyElement().attributeStartsWith("name", "child").build())
+        .add(ElementQuery.forTag("childElement").within(third).limit(1).build());
+    List<Element> values = batch.addCollecting(ElementQuery.forTag("element").attributeIn("attribute1", "value3", "value1").build());
+
+    int[] counts = parser.evaluate(batch);
+    assertArrayEquals(new int[]{4, 2, 2, 1, 3}, counts);
+    assertEquals(3, values.size());
+    assertEquals("value3", values.get(2).getAttribute("attribute1"));
+
+    // Each query agrees with its own single-query evaluation
+    for (int q = 0; q < batch.size(); q++) {
+      assertEquals(parser.countMatches(batch.getQueries().get(q)), counts[q]);
+    }
+  }
+
+  @Test
+  public void testTokenValueViews() throws Exception {
+    Element first = parser.searchByXPath("/root/element[1]").get(0);
+    TokenValue value = parser.getAttributeValue(first, "attribute1");
+    assertTrue(value.isDirect());
+    assertEquals("value1", value.toString());
+    assertTrue(value.contentEquals(new StringBuilder("value1")));
+    assertEquals("value1".hashCode(), value.contentHashCode());
+    assertEquals("alue", value.subSequence(1, 5).toString());
+    assertNull(parser.getAttributeValue(first, "missing"));
+
+    TokenValue text = parser.getTextValue(first);
+    assertEquals("Content 1", text.appendTo(new StringBuilder()).toString());
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    text.writeTo(out);
+    assertEquals("Content 1", out.toString("UTF-8"));
+    ByteBuffer buffer = ByteBuffer.allocate(16);
+    assertEquals(9, text.writeTo(buffer));
+
+    assertTrue(parser.attributeEquals(first, "attribute1", "value1"));
+    assertTrue(parser.attributeEquals(first, "attribute2", new StringBuilder("value2")));
+    assertFalse(parser.attributeEquals(first, "attribute1", "value2"));
+    assertTrue(parser.textEquals(first, "Content 1"));
+
+    // Entities are decoded only when the raw bytes carry them
+    byte[] raw = "a &lt;b&gt; &amp; &#x43;".getBytes(StandardCharsets.UTF_8);
+    TokenValue escaped = new TokenValue(raw, 0, raw.length, StandardCharsets.UTF_8);
+    assertTrue(escaped.hasEntities());
+    assertEquals("a <b> & C", escaped.toString());
+    assertTrue(escaped.contentEquals("a <b> & C"));
+    assertEquals(9, escaped.length());
+  }
+
+  @Test
+  public void testFragmentExport() throws Exception {
+    Element first = parser.searchByXPath("/root/element[1]").get(0);
+    String expected = "<element attribute1=\"value1\" attribute2=\"value2\">Content 1</element>";
+    ByteBuffer fragment = parser.extractFragment(first);
+    assertTrue(fragment.isReadOnly());
+    byte[] bytes = new byte[fragment.remaining()];
+    fragment.get(bytes);
+    assertEquals(expected, new String(bytes, StandardCharsets.UTF_8));
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    assertEquals(expected.length(), parser.writeFragment(first, out));
+    assertEquals(expected, out.toString("UTF-8"));
+
+    try (VTDXMLParser unloaded = new VTDXMLParser()) {
+      assertNull(unloaded.extractFragment(first));
+      assertEquals(2, unloaded.extractFragments(List.of(first, first)).size());
+    }
+
+    List<Element> children = parser.searchByXPath("/root/element[3]/childElement");
+    out.reset();
+    long written = parser.writeFragments(children, Channels.newChannel(out));
+    assertEquals("<childElement name=\"child1\">Child Content1</childElement>"
+        + "<childElement name=\"child2\">Child Content2</childElement>", out.toString("UTF-8"));
+    assertEquals(out.size(), written);
+    assertEquals(2, parser.extractFragments(children).size());
+  }
+
+  @Test
+  public void testDocumentEditor() {
+    Element first = parser.searchByXPath("/root/element[1]").get(0);
+    Element second = parser.searchByXPath("/root/element[2]").get(0);
+    Element fourth = parser.searchByXPath("/root/element[4]").get(0);
+    DocumentEditor editor = parser.edit()
+        .setAttribute(first, "attribute1", "a<b & \"c\"")
+        .removeAttribute(first, "attribute2")
+        .replaceText(first, "Updated")
+        .setAttribute(fourth, "status", "done")
+        .appendChild(second, "<note>added</note>");
+    assertEquals(2, editor.removeElements("/root/element[3]/childElement"));
+    assertEquals(7, editor.getEditCount());
+
+    String edited = new String(editor.toByteArray(), StandardCharsets.UTF_8);
+    assertTrue(edited.contains("attribute1=\"a&lt;b &amp; &quot;c&quot;\""));
+    assertFalse(edited.contains("attribute2"));
+    assertFalse(edited.contains("childElement"));
+    // Edits are spliced into the original bytes around them
+    assertTrue(edited.contains("<element attribute1=\"value1\">Content 2<note>added</note></element>"));
+
+    parser.applyEdits(editor);
+    Element updated = parser.searchByXPath("/root/element[1]").get(0);
+    assertEquals("a<b & \"c\"", updated.getAttribute("attribute1"));
+    assertNull(updated.getAttribute("attribute2"));
+    assertEquals("Updated", updated.getTextContent());
+    assertEquals(1, parser.getElementCountByXPath("//element[@status='done']"));
+    assertEquals(1, parser.getElementCountByXPath("/root/element[2]/note"));
+    assertEquals(0, parser.getElementCountByXPath("//childElement"));
+  }
+
+  @Test
+  public void testLoadFromMemory() throws Exception {
+    byte[] xml = Files.readAllBytes(Path.of("src/test/resources/test-data/small-test.xml"));
+    try (VTDXMLParser fromBytes = new VTDXMLParser()) {
+      fromBytes.loadDocument(xml);
+      assertEquals(4, fromBytes.getElementCountByXPath("//element"));
+      long footprint = fromBytes.getMemoryFootprint();
+
+      // Reloading on the same parser, here from a buffer slice and then a direct buffer
+      byte[] padded = new byte[xml.length + 6];
+      System.arraycopy(xml, 0, padded, 3, xml.length);
+      fromBytes.loadDocument(ByteBuffer.wrap(padded, 3, xml.length));
+      assertEquals("Content 1", fromBytes.getValueByXPath("//element[@attribute1='value1']"));
+      ByteBuffer direct = ByteBuffer.allocateDirect(xml.length);
+      direct.put(xml).flip();
+      fromBytes.loadDocument(direct);
+      assertEquals(2, fromBytes.getElementCountByXPath("//childElement"));
+      assertEquals(xml.length, direct.remaining());
+
+      // An undersized hint makes the buffer grow; the document is still read whole
+      fromBytes.loadDocument(new ByteArrayInputStream(xml), 16);
+      assertEquals(4, fromBytes.getElementCountByXPath("//element"));
+      assertEquals(footprint, fromBytes.getMemoryFootprint()); // The pooled buffer is larger than the document
+      fromBytes.loadDocument("src/test/resources/test-data/small-test.xml");
+      assertEquals(4, fromBytes.getElementCountByXPath("//element"));
+    }
+
+    try (VTDXMLParser fromStream = new VTDParserBuilder().setBufferSize(1024).build()) {
+      fromStream.loadDocument(new ByteArrayInputStream(xml), xml.length);
+      assertEquals("value3", fromStream.searchByXPath("/root/element[3]").get(0).getAttribute("attribute1"));
+    }
+  }
+
+  @Test
+  public void testParserReuse() throws Exception {
+    byte[] small = Files.readAllBytes(Path.of("src/test/resources/test-data/small-test.xml"));
+    byte[] medium = Files.readAllBytes(Path.of("src/test/resources/test-data/medium-test.xml"));
+    VTDParserBuilder builder = new VTDParserBuilder().setParserReuseEnabled(true).setBufferSize(1024);
+    ParserBuffers released;
+    try (VTDXMLParser reusing = builder.build()) {
+      for (int i = 0; i < 3; i++) {
+        reusing.loadDocument(small);
+        assertEquals(4, reusing.getElementCountByXPath("//element"));
+        reusing.loadDocument(new ByteArrayInputStream(medium), 0);
+        assertEquals(8, reusing.getElementCountByXPath("//child"));
+        reusing.loadDocument("src/test/resources/test-data/small-test.xml");
+        assertEquals("Content 1", reusing.getValueByXPath("//element[@attribute1='value1']"));
+      }
+      released = reusing.heldBuffers();
+    }
+
+    // The next parser on this thread picks up the released buffers
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    new SchedulerXmlGenerator().setTargetBytes(6 * 1024 * 1024).setSeed(5L).writeTo(out);
+    byte[] large = out.toByteArray();
+    try (VTDXMLParser next = builder.build()) {
+      next.loadDocument(new ByteArrayInputStream(small), small.length);
+      assertEquals(2, next.getElementCountByXPath("//childElement"));
+      assertSame(released, next.heldBuffers());
+
+      // A large document leaves buffers sized for it, so they are dropped instead of kept idle
+      next.loadDocument(large);
+      assertTrue(next.getElementCountByXPath("//JOB") > 0);
+    }
+    try (VTDXMLParser afterLarge = builder.build()) {
+      afterLarge.loadDocument(small);
+      assertEquals(4, afterLarge.getElementCountByXPath("//element"));
+      assertNotSame(released, afterLarge.heldBuffers());
+    }
+  }
+
+  @Test
+  public void testParallelXPath() throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    new SchedulerXmlGenerator().setTargetBytes(256 * 1024).setSeed(3L).writeTo(out);
+    byte[] xml = out.toByteArray();
+    try (VTDXMLParser sequential = new VTDXMLParser();
+         VTDXMLParser parallel = new VTDParserBuilder().setParallelQueryThreshold(0).build()) {
+      sequential.loadDocument(xml);
+      parallel.loadDocument(xml);
+
+      for (String xpath : List.of("//JOB[@TASKTYPE='Command']", "//SUB_FOLDER/JOB/ON[@CODE='OK']", "//DOACTION",
+          "//SMART_FOLDER[1]", "/DEFTABLE/SMART_FOLDER[2]//JOB", "//JOB[last()]")) {
+        List<Element> expected = sequential.searchByXPath(xpath);
+        List<Element> actual = parallel.searchByXPath(xpath);
+        assertEquals(expected.size(), actual.size(), xpath);
+        for (int i = 0; i < expected.size(); i++) {
+          assertEquals(expected.get(i).getXpath(), actual.get(i).getXpath(), xpath);
+        }
+        assertEquals(expected.size(), parallel.getElementCountByXPath(xpath), xpath);
+      }
+
+      List<Element> expected = sequential.searchByAttribute("JOB", "TASKTYPE", "Dummy");
+      List<Element> actual = parallel.searchByAttribute("JOB", "TASKTYPE", "Dummy");
+      assertFalse(expected.isEmpty());
+      assertEquals(expected.stream().map(Element::getXpath).collect(Collectors.toList()),
+          actual.stream().map(Element::getXpath).collect(Collectors.toList()));
+    }
+
+    assertEquals("descendant-or-self::JOB[@TASKTYPE='Command']/ON",
+        ParallelXPath.partitionedForm("//JOB[@TASKTYPE='Command']/ON", "DEFTABLE"));
+    assertEquals("descendant-or-self::JOB/ON[1]", ParallelXPath.partitionedForm("//JOB/ON[1]", "DEFTABLE"));
+    assertNull(ParallelXPath.partitionedForm("//JOB[1]", "DEFTABLE"));
+    assertNull(ParallelXPath.partitionedForm("//JOB[count(ON)]", "DEFTABLE"));
+    assertNull(ParallelXPath.partitionedForm("//DEFTABLE//JOB", "DEFTABLE"));
+    assertNull(ParallelXPath.partitionedForm("//JOB/..", "DEFTABLE"));
+    assertNull(ParallelXPath.partitionedForm("//JOB/following::ON", "DEFTABLE"));
+    assertNull(ParallelXPath.partitionedForm("//JOB | //ON", "DEFTABLE"));
+    assertNull(ParallelXPath.partitionedForm("/DEFTABLE/SMART_FOLDER", "DEFTABLE"));
+  }
+
   @Test
   public void testGetElementCountByXPath() {
     int count = parser.getElementCountByXPath("/root[1]/element");
@@ -0,0 +1,36 @@
+package com.vtdparser.batch;
+
+import com.vtdparser.config.ParserConfiguration;
+import com.vtdparser.exception.BatchLoadException;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BatchLoaderTest {
+
+  @Test
+  public void testFailedFilesDoNotAbortBatch() throws Exception {
+    // A one-byte budget forces every file to be parsed on its own
+    try (BatchLoader loader = new BatchLoader(new ParserConfiguration(), 1)) {
+      List<DocumentLoad> loads = loader.loadAll(List.of(
+          "src/test/resources/test-data/small-test.xml",
+          "src/test/resources/test-data/missing.xml",
+          "src/test/resources/test-data/medium-test.xml"));
+
+      BatchResult result = BatchLoader.awaitAll(loads);
+      assertEquals(2, result.getLoaded().size());
+      assertEquals(1, result.getFailed().size());
+      assertEquals(0, loader.getInFlightBytes());
+
+      DocumentLoad failed = result.getFailed().get(0);
+      assertEquals("src/test/resources/test-data/missing.xml", failed.getPath());
+      assertTrue(failed.getFailure() instanceof BatchLoadException);
+      assertNull(failed.getParser());
+
+      assertEquals(4, loads.get(0).getParser().getElementCountByXPath("//element"));
+      assertEquals(8, loads.get(2).getParser().getElementCountByXPath("//child"));
+    }
+  }
+}
@@ -0,0 +1,70 @@
+package com.vtdparser.performance;
+
+import com.vtdparser.VTDXMLParser;
+import com.vtdparser.model.Element;
+import com.vtdparser.testdata.SchedulerXmlGenerator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ScaleTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testGeneratorIsReproducible() throws Exception {
+        SchedulerXmlGenerator generator = new SchedulerXmlGenerator().setTargetBytes(256 * 1024).setSeed(7L);
+
+        ByteArrayOutputStream first = new ByteArrayOutputStream();
+        ByteArrayOutputStream second = new ByteArrayOutputStream();
+        SchedulerXmlGenerator.Summary summary = generator.writeTo(first);
+        generator.writeTo(second);
+
+        assertArrayEquals(first.toByteArray(), second.toByteArray(), "Same seed should produce the same document");
+        assertEquals(first.size(), summary.getBytesWritten());
+        assertTrue(summary.getBytesWritten() >= 256 * 1024, "Output should reach the target size");
+    }
+
+    @Test
+    public void testQueriesOnGeneratedDocument() throws Exception {
+        Path xmlFile = tempDir.resolve("scheduler-32mb.xml");
+        SchedulerXmlGenerator.Summary summary = new SchedulerXmlGenerator()
+                .setTargetMegabytes(32)
+                .setDepth(3)
+                .setWidth(20)
+                .writeTo(xmlFile);
+        assertEquals(Files.size(xmlFile), summary.getBytesWritten());
+
+        VTDXMLParser parser = new VTDXMLParser();
+        parser.loadDocument(xmlFile.toString());
+
+        long startTime = System.currentTimeMillis();
+        assertEquals(summary.getJobCount(), parser.getElementCountByXPath("//JOB"));
+        assertEquals(summary.getSubFolderCount(), parser.getElementCountByXPath("//SUB_FOLDER"));
+        assertEquals(summary.getCriticalJobCount(), parser.searchByAttribute("JOB", "CRITICAL", "1").size());
+
+        List<Element> folders = parser.searchByAttribute("SMART_FOLDER", "JOBNAME", "FOLDER_1");
+        assertEquals(1, folders.size());
+        List<Element> subFolders = parser.getChildren(folders.get(0));
+        assertEquals(20, subFolders.size());
+        List<Element> jobs = parser.searchChildrenByAttribute(subFolders.get(0), "CRITICAL", "0");
+        assertTrue(jobs.size() > 0 && jobs.size() <= 20, "Should find the non-critical jobs of the first sub-folder");
+
+        String lastJob = "JOB_" + summary.getJobCount();
+        assertEquals("Synthetic job " + summary.getJobCount(),
+                parser.getValueByXPath("//JOB[@JOBNAME='" + lastJob + "']/DESCRIPTION"));
+
+        System.out.println("Queries on " + summary.getBytesWritten() / (1024 * 1024) + " MB generated document: "
+                + (System.currentTimeMillis() - startTime) + "ms");
+        parser.close();
+    }
+}
@@ -0,0 +1,106 @@
+package com.vtdparser.pool;
+
+import com.vtdparser.VTDXMLParser;
+import com.vtdparser.config.ParserConfiguration;
+import com.vtdparser.exception.ResourceManagementException;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DocumentPoolTest {
+  private static final String SMALL = "src/test/resources/test-data/small-test.xml";
+  private static final String MEDIUM = "src/test/resources/test-data/medium-test.xml";
+
+  @Test
+  public void testLeastRecentlyUsedIdleDocumentIsEvicted() throws Exception {
+    long smallBytes;
+    try (DocumentPool sizing = new DocumentPool(new ParserConfiguration(), Long.MAX_VALUE);
+         DocumentLease lease = sizing.acquire(SMALL, "1")) {
+      smallBytes = lease.getParser().getMemoryFootprint();
+      assertTrue(smallBytes > 0);
+    }
+
+    // Room for one small document and nothing else
+    try (DocumentPool pool = new DocumentPool(new ParserConfiguration(), smallBytes)) {
+      VTDXMLParser small;
+      try (DocumentLease lease = pool.acquire(SMALL, "1")) {
+        small = lease.getParser();
+        assertEquals(4, small.getElementCountByXPath("//element"));
+      }
+      assertTrue(pool.contains(SMALL, "1"));
+      assertEquals(smallBytes, pool.getResidentBytes());
+
+      try (DocumentLease medium = pool.acquire(MEDIUM, "1")) {
+        // The idle small document made way; the leased one stays even though it is over budget
+        assertFalse(pool.contains(SMALL, "1"));
+        assertEquals(1, pool.getEvictionCount());
+        assertEquals(0, small.getElementCountByXPath("//element"));
+        assertEquals(8, medium.getParser().getElementCountByXPath("//child"));
+        assertTrue(pool.getResidentBytes() > pool.getMaxBytes());
+      }
+      assertFalse(pool.contains(MEDIUM, "1"));
+      assertEquals(0, pool.getResidentBytes());
+    }
+  }
+
+  @Test
+  public void testContainsDoesNotChangeEvictionOrder() throws Exception {
+    long smallBytes;
+    try (DocumentPool sizing = new DocumentPool(new ParserConfiguration(), Long.MAX_VALUE);
+         DocumentLease lease = sizing.acquire(SMALL, "1")) {
+      smallBytes = lease.getParser().getMemoryFootprint();
+    }
+
+    // Room for two versions of the small document
+    try (DocumentPool pool = new DocumentPool(new ParserConfiguration(), 2 * smallBytes)) {
+      pool.acquire(SMALL, "1").close();
+      pool.acquire(SMALL, "2").close();
+      assertTrue(pool.contains(SMALL, "1"));
+
+      // Version 1 is still the least recently used
+      pool.acquire(SMALL, "3").close();
+      assertFalse(pool.contains(SMALL, "1"));
+      assertTrue(pool.contains(SMALL, "2"));
+      assertTrue(pool.contains(SMALL, "3"));
+    }
+  }
+
+  @Test
+  public void testLeasedDocumentOutlivesInvalidation() throws Exception {
+    try (DocumentPool pool = new DocumentPool(new ParserConfiguration(), Long.MAX_VALUE)) {
+      DocumentLease first = pool.acquire(SMALL, "1");
+      DocumentLease second = pool.acquire(SMALL, "1");
+      assertSame(first.getParser(), second.getParser());
+
+      pool.invalidate(SMALL, "1");
+      assertEquals(4, first.getParser().getElementCountByXPath("//element"));
+      first.close();
+      assertEquals(4, second.getParser().getElementCountByXPath("//element"));
+      VTDXMLParser parser = second.getParser();
+      second.close();
+      second.close();
+      assertEquals(0, parser.getElementCountByXPath("//element"));
+      assertThrows(ResourceManagementException.class, second::getParser);
+      assertEquals(0, pool.getResidentBytes());
+    }
+  }
+
+  @Test
+  public void testDemotedDocumentReloadsMemoryMapped() throws Exception {
+    try (DocumentPool pool = new DocumentPool(new ParserConfiguration(), 0, DocumentPool.EvictionPolicy.DEMOTE_TO_MAPPED)) {
+      long heapBytes;
+      try (DocumentLease lease = pool.acquire(SMALL, "1")) {
+        heapBytes = lease.getParser().getMemoryFootprint();
+      }
+      assertEquals(1, pool.getEvictionCount());
+      assertEquals(1, pool.size());
+
+      try (DocumentLease lease = pool.acquire(SMALL, "1")) {
+        assertEquals(4, lease.getParser().getElementCountByXPath("//element"));
+        assertTrue(lease.getParser().getMemoryFootprint() < heapBytes);
+      }
+      // A mapped document is dropped on its next eviction
+      assertEquals(0, pool.size());
+    }
+  }
+}
@@ -0,0 +1,130 @@
+package com.vtdparser.stream;
+
+import com.vtdparser.VTDXMLParser;
+import com.vtdparser.config.ParserConfiguration;
+import com.vtdparser.model.Element;
+import com.vtdparser.testdata.SchedulerXmlGenerator;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ChunkedParserTest {
+  private static final String SMALL = "src/test/resources/test-data/small-test.xml";
+
+  private static byte[] scheduler;
+  private static SchedulerXmlGenerator.Summary summary;
+
+  @BeforeAll
+  public static void generateDocument() throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    // Width 4 keeps each SMART_FOLDER near 5 KB, so the document has dozens of top-level records
+    summary = new SchedulerXmlGenerator().setTargetBytes(256 * 1024).setWidth(4).setSeed(11L).writeTo(out);
+    scheduler = out.toByteArray();
+  }
+
+  @Test
+  public void testChunksMatchWholeDocument() throws Exception {
+    try (VTDXMLParser whole = new VTDXMLParser();
+         ChunkedParser chunked = new ChunkedParser(new ParserConfiguration(), 16 * 1024)) {
+      whole.loadDocument(scheduler);
+      assertMatchesWholeDocument(whole, chunked);
+
+      List<Integer> chunkIndexes = new ArrayList<>();
+      int chunks = chunked.process(new ByteArrayInputStream(scheduler), DocumentChunk::getIndex, chunkIndexes::add);
+      assertTrue(summary.getFolderCount() >= 20);
+      // Every chunk but the last holds at least 16 KB of records, and each chunk at least one record
+      assertTrue(chunks >= 4 && chunks <= summary.getFolderCount(), "chunks: " + chunks);
+      for (int i = 0; i < chunks; i++) {
+        assertEquals(i, (int) chunkIndexes.get(i));
+      }
+    }
+  }
+
+  @Test
+  public void testParallelChunksDeliveredInOrder() throws Exception {
+    try (VTDXMLParser whole = new VTDXMLParser();
+         ChunkedParser chunked = new ChunkedParser(new ParserConfiguration(), 8 * 1024, 4)) {
+      whole.loadDocument(scheduler);
+      assertMatchesWholeDocument(whole, chunked);
+    }
+  }
+
+  @Test
+  public void testSmallDocumentInSingleRecordChunks() throws Exception {
+    try (VTDXMLParser whole = new VTDXMLParser();
+         ChunkedParser chunked = new ChunkedParser(new ParserConfiguration(), 1)) {
+      whole.loadDocument(SMALL);
+
+      List<Integer> recordCounts = new ArrayList<>();
+      try (InputStream in = new FileInputStream(SMALL)) {
+        assertEquals(4, chunked.process(in, DocumentChunk::getRecordCount, recordCounts::add));
+      }
+      assertTrue(recordCounts.stream().allMatch(count -> count == 1));
+
+      List<Element> children;
+      try (InputStream in = new FileInputStream(SMALL)) {
+        children = chunked.searchByXPath(in, "//childElement");
+      }
+      List<Element> expected = whole.searchByXPath("//childElement");
+      assertEquals(expected.size(), children.size());
+      for (int i = 0; i < expected.size(); i++) {
+        assertEquals(expected.get(i).getXpath(), children.get(i).getXpath());
+        assertEquals(expected.get(i).getTextContent(), children.get(i).getTextContent());
+      }
+
+      try (InputStream in = new FileInputStream(SMALL)) {
+        List<Element> records = chunked.searchByAttribute(in, "element", "attribute1", "value3");
+        assertEquals(1, records.size());
+        assertEquals("/root[1]/element[3]", records.get(0).getXpath());
+        assertEquals(3, records.get(0).getElementIndex());
+      }
+    }
+  }
+
+  @Test
+  public void testMarkupInsideRecordsDoesNotSplitThem() throws Exception {
+    String xml = "<?xml version=\"1.0\"?>\n<!DOCTYPE items [<!ELEMENT items ANY>]>\n"
+        + "<items version=\"2\"><!-- <item> -->"
+        + "<item note=\"a > b\"><![CDATA[</item>]]></item>"
+        + "<?pi </item>?><item><item/></item><item/></items>";
+    try (ChunkedParser chunked = new ChunkedParser(new ParserConfiguration(), 1)) {
+      List<Integer> counts = new ArrayList<>();
+      int chunks = chunked.process(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)),
+          chunk -> chunk.getParser().getElementCountByXPath("//item"), counts::add);
+      assertEquals(3, chunks);
+      assertEquals(List.of(1, 2, 1), counts);
+      assertEquals(1, chunked.getElementCountByXPath(
+          new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)), "/items[@version='2']/item[@note='a > b']"));
+    }
+  }
+
+  private static void assertMatchesWholeDocument(VTDXMLParser whole, ChunkedParser chunked) throws Exception {
+    assertEquals(whole.getElementCountByXPath("//JOB"),
+        chunked.getElementCountByXPath(new ByteArrayInputStream(scheduler), "//JOB"));
+
+    List<Element> expected = whole.searchByXPath("//JOB[@TASKTYPE='Dummy']");
+    List<Element> actual = chunked.searchByXPath(new ByteArrayInputStream(scheduler), "//JOB[@TASKTYPE='Dummy']");
+    assertFalse(expected.isEmpty());
+    assertEquals(expected.size(), actual.size());
+    for (int i = 0; i < expected.size(); i++) {
+      assertEquals(expected.get(i).getXpath(), actual.get(i).getXpath());
+      assertEquals(expected.get(i).getAttribute("JOBNAME"), actual.get(i).getAttribute("JOBNAME"));
+    }
+
+    List<Element> folders = chunked.searchByAttribute(new ByteArrayInputStream(scheduler), "SMART_FOLDER", "DATACENTER", "DC1");
+    List<Element> expectedFolders = whole.searchByAttribute("SMART_FOLDER", "DATACENTER", "DC1");
+    assertEquals(expectedFolders.size(), folders.size());
+    Element last = folders.get(folders.size() - 1);
+    assertEquals(expectedFolders.get(expectedFolders.size() - 1).getXpath(), last.getXpath());
+    assertEquals(folders.size(), last.getElementIndex());
+  }
+}
@@ -0,0 +1,203 @@
+package com.vtdparser.testdata;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.SplittableRandom;
+
+// Streams scheduler-style XML for scale tests and benchmarks:
+// DEFTABLE > SMART_FOLDER > (depth - 2) levels of SUB_FOLDER > JOB > ON > DOACTION.
+// Every folder level has `width` children. Folders are appended until the output reaches the
+// target size; the folder being written then gets no further children, so the output ends within
+// one job of the target. Only the current path is held in memory, so multi-GB documents are fine.
+// The same settings and seed always produce the same bytes.
+public class SchedulerXmlGenerator {
+    static final String[] TASK_TYPES = {"Command", "Job", "Dummy", "FileWatch", "Database", "FileTransfer"};
+
+    private long targetBytes;
+    private int depth;
+    private int width;
+    private int attributeCardinality;
+    private double criticalRatio;
+    private long seed;
+
+    public SchedulerXmlGenerator() {
+        this.targetBytes = 10L * 1024 * 1024; // Default 10 MB
+        this.depth = 3; // Default SMART_FOLDER > SUB_FOLDER > JOB
+        this.width = 10; // Default 10 children per folder
+        this.attributeCardinality = 3; // Default Command/Job/Dummy task types and three applications
+        this.criticalRatio = 0.1; // Default one job in ten is critical
+        this.seed = 42L;
+    }
+
+    public SchedulerXmlGenerator setTargetBytes(long targetBytes) {
+        this.targetBytes = targetBytes;
+        return this;
+    }
+
+    public SchedulerXmlGenerator setTargetMegabytes(int megabytes) {
+        return setTargetBytes(megabytes * 1024L * 1024L);
+    }
+
+    // Number of element levels from SMART_FOLDER down to JOB, both included
+    public SchedulerXmlGenerator setDepth(int depth) {
+        if (depth < 2) {
+            throw new IllegalArgumentException("depth must be at least 2");
+        }
+        this.depth = depth;
+        return this;
+    }
+
+    public SchedulerXmlGenerator setWidth(int width) {
+        if (width < 1) {
+            throw new IllegalArgumentException("width must be at least 1");
+        }
+        this.width = width;
+        return this;
+    }
+
+    // Number of distinct TASKTYPE and APPLICATION values; task types beyond the built-in ones are numbered
+    public SchedulerXmlGenerator setAttributeCardinality(int attributeCardinality) {
+        if (attributeCardinality < 1) {
+            throw new IllegalArgumentException("attributeCardinality must be at least 1");
+        }
+        this.attributeCardinality = attributeCardinality;
+        return this;
+    }
+
+    public SchedulerXmlGenerator setCriticalRatio(double criticalRatio) {
+        this.criticalRatio = criticalRatio;
+        return this;
+    }
+
+    public SchedulerXmlGenerator setSeed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    // Writes to a temporary sibling first, so a partially written file is never left at `file`
+    public Summary writeTo(Path file) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+        Summary summary;
+        try (OutputStream out = Files.newOutputStream(tempFile)) {
+            summary = writeTo(out);
+        }
+        Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING);
+        return summary;
+    }
+
+    public Summary writeTo(OutputStream outputStream) throws IOException {
+        Summary summary = new Summary();
+        Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8), 64 * 1024);
+        Output out = new Output(writer, summary);
+        SplittableRandom random = new SplittableRandom(seed);
+
+        out.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<DEFTABLE>\n");
+        while (summary.bytesWritten < targetBytes) {
+            int folder = ++summary.folderCount;
+            String name = "FOLDER_" + folder;
+            out.write("  <SMART_FOLDER JOBNAME=\"" + name + "\" FOLDER_NAME=\"" + name
+                    + "\" APPLICATION=\"" + application(random) + "\" DATACENTER=\"DC1\">\n");
+            writeChildren(out, random, depth - 2, name, 2);
+            out.write("  </SMART_FOLDER>\n");
+        }
+        out.write("</DEFTABLE>\n");
+        writer.flush();
+        return summary;
+    }
+
+    private void writeChildren(Output out, SplittableRandom random, int remainingDepth, String parentName,
+                               int indent) throws IOException {
+        String padding = "  ".repeat(indent);
+        for (int i = 1; i <= width && out.summary.bytesWritten < targetBytes; i++) {
+            if (remainingDepth > 0) {
+                String name = parentName + "_" + i;
+                out.summary.subFolderCount++;
+                out.write(padding + "<SUB_FOLDER JOBNAME=\"" + name + "\" APPLICATION=\"" + application(random) + "\">\n");
+                writeChildren(out, random, remainingDepth - 1, name, indent + 1);
+                out.write(padding + "</SUB_FOLDER>\n");
+            } else {
+                writeJob(out, random, padding);
+            }
+        }
+    }
+
+    private void writeJob(Output out, SplittableRandom random, String padding) throws IOException {
+        int job = ++out.summary.jobCount;
+        String taskType = taskType(random.nextInt(attributeCardinality));
+        boolean critical = random.nextDouble() < criticalRatio;
+        if (critical) {
+            out.summary.criticalJobCount++;
+        }
+        out.write(padding + "<JOB JOBNAME=\"JOB_" + job + "\" TASKTYPE=\"" + taskType + "\" CRITICAL=\"" + (critical ? 1 : 0)
+                + "\" APPLICATION=\"" + application(random) + "\">\n");
+        out.write(padding + "  <DESCRIPTION>Synthetic job " + job + "</DESCRIPTION>\n");
+        out.write(padding + "  <ON STMT=\"*\" CODE=\"" + (random.nextBoolean() ? "OK" : "NOTOK") + "\">\n");
+        out.write(padding + "    <DOACTION ACTION=\"" + (random.nextBoolean() ? "OK" : "NOTOK") + "\"/>\n");
+        out.write(padding + "  </ON>\n");
+        out.write(padding + "</JOB>\n");
+    }
+
+    private String application(SplittableRandom random) {
+        return "APP_" + random.nextInt(attributeCardinality);
+    }
+
+    static String taskType(int index) {
+        return index < TASK_TYPES.length ? TASK_TYPES[index] : "Type" + index;
+    }
+
+    // Counts of what was written, so tests can assert exact match counts
+    public static final class Summary {
+        private long bytesWritten;
+        private int folderCount;
+        private int subFolderCount;
+        private int jobCount;
+        private int criticalJobCount;
+
+        public long getBytesWritten() {
+            return bytesWritten;
+        }
+
+        public int getFolderCount() {
+            return folderCount;
+        }
+
+        public int getSubFolderCount() {
+            return subFolderCount;
+        }
+
+        public int getJobCount() {
+            return jobCount;
+        }
+
+        public int getCriticalJobCount() {
+            return criticalJobCount;
+        }
+    }
+
+    // The generated markup is ASCII, so the character count is the byte count
+    private static final class Output {
+        private final Writer writer;
+        private final Summary summary;
+
+        Output(Writer writer, Summary summary) {
+            this.writer = writer;
+            this.summary = summary;
+        }
+
+        void write(String text) throws IOException {
+            writer.write(text);
+            summary.bytesWritten += text.length();
+        }
+    }
+}